@@ -3,6 +3,9 @@ package com.flooring.flooringmastery.controller;
 import com.flooring.flooringmastery.exceptions.PersistenceException;
 import com.flooring.flooringmastery.exceptions.NoSuchOrderException;
 import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.model.OrderKey;
+import com.flooring.flooringmastery.service.ImportReport;
+import com.flooring.flooringmastery.service.RepriceReport;
 import com.flooring.flooringmastery.service.ServiceLayer;
 import com.flooring.flooringmastery.view.View;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,10 +13,15 @@ import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 @Component
 public class Controller {
+    private static final int MAX_IMPORT_ERRORS_SHOWN = 20;
+    private static final int MAX_CUSTOMER_MATCHES_SHOWN = 20;
+
     private View view;
     private ServiceLayer service;
 
@@ -43,6 +51,24 @@ public class Controller {
                     exportData();
                     break;
                 case 6:
+                    exportDateRange();
+                    break;
+                case 7:
+                    importOrders();
+                    break;
+                case 8:
+                    repriceOpenOrders();
+                    break;
+                case 9:
+                    salesReports();
+                    break;
+                case 10:
+                    findOrdersByCustomer();
+                    break;
+                case 11:
+                    view.displayDiagnostics(service.getDiagnostics());
+                    break;
+                case 12:
                     exitMessage();
                     return;
             }
@@ -110,7 +136,8 @@ public class Controller {
 
             try {
                 // Get existing order (service will throw NoSuchOrderException if not found)
-                Order existingOrder = service.getOrder(date, orderNum);
+                // edits go on a copy so other readers never see a half-edited or discarded order
+                Order existingOrder = new Order(service.getOrder(date, orderNum));
 
                 //Display current info
                 view.displayOrder(existingOrder);
@@ -171,8 +198,7 @@ public class Controller {
                 // Show summary and confirm
                 view.displayOrder(newOrder);
                 if (view.readYesNo("Save changes? (Y/N): ")) {
-                    service.removeOrder(date, orderNum);
-                    service.addOrder(date, newOrder);
+                    service.updateOrder(date, newOrder);
                     view.displayMessage("Order successfully updated.");
                 } else {
                     view.displayMessage("Changes discarded.");
@@ -209,12 +235,111 @@ public class Controller {
 
     public void exportData() {
         try {
-            service.exportData();
-            view.displayMessage("Data exported to FileData/Backup/DataExport.txt");
+            List<String> files = service.exportData();
+            view.displayMessage("Data exported to " + String.join(", ", files));
         } catch (Exception e) {
             view.displayMessage("Export failed: " + e.getMessage());
         }
     }
+    public void exportDateRange() {
+        LocalDate from = view.getDateFromString("Enter first date to export (YYYY-MM-DD): ");
+        LocalDate to = view.getDateFromString("Enter last date to export (YYYY-MM-DD): ");
+        while (to.isBefore(from)) {
+            to = view.getDateFromString("Last date must not be before " + from + " (YYYY-MM-DD): ");
+        }
+
+        try {
+            String file = service.exportData(from, to);
+            view.displayMessage("Orders from " + from + " to " + to + " exported to " + file);
+        } catch (Exception e) {
+            view.displayMessage("Export failed: " + e.getMessage());
+        }
+    }
+    public void importOrders() {
+        String file = view.readString("Enter path of the csv to import (OrderDate,CustomerName,State,ProductType,Area): ");
+        try {
+            ImportReport report = service.importOrders(file);
+            view.displayMessage(report.getAdded().size() + " orders imported, " + report.getErrors().size() + " rows rejected.");
+            int shown = 0;
+            for (Map.Entry<Integer, String> error : report.getErrors().entrySet()) {
+                if (shown++ == MAX_IMPORT_ERRORS_SHOWN) {
+                    view.displayMessage("... and " + (report.getErrors().size() - MAX_IMPORT_ERRORS_SHOWN) + " more");
+                    break;
+                }
+                view.displayMessage("Line " + error.getKey() + ": " + error.getValue());
+            }
+        } catch (PersistenceException e) {
+            view.displayMessage("Import failed: " + e.getMessage());
+        }
+    }
+    public void repriceOpenOrders() {
+        String state = view.readStringAllowEmpty("Reprice orders for state (blank for any): ").trim();
+        String product = view.readStringAllowEmpty("Reprice orders for product type (blank for any): ").trim();
+        if (state.isEmpty() && product.isEmpty()
+                && !view.readYesNo("This reprices every open order. Continue? (Y/N): ")) {
+            view.displayMessage("Repricing cancelled.");
+            return;
+        }
+
+        try {
+            RepriceReport report = service.repriceOpenOrders(state.isEmpty() ? null : state.toUpperCase(),
+                    product.isEmpty() ? null : product);
+            view.displayMessage(report.getOrdersRepriced() + " orders repriced on " + report.getDatesWritten()
+                    + " dates, totals changed by $" + report.getTotalChange().setScale(2, RoundingMode.HALF_UP));
+            report.getFailures().forEach((date, message) -> view.displayMessage("Could not reprice " + date + ": " + message));
+        } catch (PersistenceException e) {
+            view.displayMessage("Repricing failed: " + e.getMessage());
+        }
+    }
+    public void salesReports() {
+        int choice = view.displaySalesMenuAndGetSelection();
+        if (choice == 4) {
+            try {
+                service.rebuildSalesTotals();
+                view.displayMessage("Sales totals rebuilt from the order files.");
+            } catch (PersistenceException e) {
+                view.displayMessage("Rebuild failed: " + e.getMessage());
+            }
+            return;
+        }
+
+        LocalDate from = view.getDateFromString("Enter first date of the report (YYYY-MM-DD): ");
+        LocalDate to = view.getDateFromString("Enter last date of the report (YYYY-MM-DD): ");
+        while (to.isBefore(from)) {
+            to = view.getDateFromString("Last date must not be before " + from + " (YYYY-MM-DD): ");
+        }
+        String period = " " + from + " to " + to;
+        try {
+            switch (choice) {
+                case 1 -> view.displaySalesTotals("Sales by State" + period, service.getSalesByState(from, to));
+                case 2 -> view.displaySalesTotals("Sales by Product" + period, service.getSalesByProduct(from, to));
+                default -> view.displaySalesTotals("Sales by Date" + period, service.getSalesByDate(from, to));
+            }
+        } catch (PersistenceException e) {
+            view.displayMessage("Sales report failed: " + e.getMessage());
+        }
+    }
+    public void findOrdersByCustomer() {
+        String prefix = view.readString("Enter the start of a customer name: ").trim();
+        try {
+            List<OrderKey> matches = service.findOrdersByCustomer(prefix);
+            view.displayMessage(matches.size() + " orders found for \"" + prefix + "\".");
+            for (OrderKey key : matches.subList(0, Math.min(matches.size(), MAX_CUSTOMER_MATCHES_SHOWN))) {
+                try {
+                    Order order = service.getOrder(key.date(), key.orderNumber());
+                    view.displayMessage(key.date() + "  #" + key.orderNumber() + "  " + order.getCustomerName()
+                            + "  $" + order.getTotal());
+                } catch (NoSuchOrderException e) {
+                    // removed by another session since the search
+                }
+            }
+            if (matches.size() > MAX_CUSTOMER_MATCHES_SHOWN) {
+                view.displayMessage("... and " + (matches.size() - MAX_CUSTOMER_MATCHES_SHOWN) + " more");
+            }
+        } catch (PersistenceException e) {
+            view.displayMessage("Search failed: " + e.getMessage());
+        }
+    }
     public void exitMessage() {
         view.displayMessage("Exiting...");
 
@@ -1,4 +1,7 @@
 package com.flooring.flooringmastery.dao;
 public interface AuditDao {
     void writeAuditEntry(String entry);
+    //blocks until entries written so far are stored, for writers that queue them
+    default void flush() {
+    }
 }
@@ -1,12 +1,253 @@
 package com.flooring.flooringmastery.dao;
 
+import com.flooring.flooringmastery.view.UserIO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only audit trail written off the caller's thread.
+ * writeAuditEntry stamps the entry and offers it to a bounded ring buffer, that is all the order
+ * entry path pays. One "audit-writer" daemon takes whatever has queued up and appends it with a
+ * single write (group commit), then forces it to disk by the fsync policy: none leaves it to the
+ * OS, batch forces after every group, interval at most once per fsync-interval-ms.
+ * When the buffer is full the backpressure policy decides: drop counts the entry and the writer
+ * notes how many were lost, block makes the caller wait for room while the writer is still running.
+ * Once the file passes max-file-bytes it is renamed to audit.log.1, older files shift up to
+ * max-files and the oldest is deleted.
+ */
 @Repository
 public class AuditDaoFileImpl implements AuditDao {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AuditDaoFileImpl.class);
+
+    public enum Fsync { NONE, BATCH, INTERVAL }
+
+    public enum Backpressure { DROP, BLOCK }
+
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_POLL_MS = 200;
+
+    private record Entry(long millis, String text) {
+    }
+
+    private final UserIO userIO;
+    private final String auditFile;
+    private final BlockingQueue<Entry> buffer;
+    private final Fsync fsync;
+    private final long fsyncIntervalMillis;
+    private final Backpressure backpressure;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final Thread writer;
+    //entries accepted by writeAuditEntry and entries the writer has appended, flush waits for one to catch up
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long written;
+    private volatile boolean running = true;
+
+    //only touched by the writer thread after the constructor
+    private FileChannel channel;
+    private long fileBytes;
+    private long lastForce;
+    private boolean unforced;
+
+    @Autowired
+    public AuditDaoFileImpl(UserIO userIO,
+                            @Value("${flooring.audit.file:FileData/Audit/audit.log}") String auditFile,
+                            @Value("${flooring.audit.capacity:8192}") int capacity,
+                            @Value("${flooring.audit.fsync:batch}") String fsync,
+                            @Value("${flooring.audit.fsync-interval-ms:1000}") long fsyncIntervalMillis,
+                            @Value("${flooring.audit.backpressure:drop}") String backpressure,
+                            @Value("${flooring.audit.max-file-bytes:10485760}") long maxFileBytes,
+                            @Value("${flooring.audit.max-files:5}") int maxFiles) {
+        this.userIO = userIO;
+        this.auditFile = auditFile;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+        this.fsync = Fsync.valueOf(fsync.trim().toUpperCase());
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.backpressure = Backpressure.valueOf(backpressure.trim().toUpperCase());
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = Math.max(maxFiles, 0);
+        try {
+            openFile();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open audit log " + auditFile, e);
+        }
+        writer = new Thread(this::drain, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
     @Override
     public void writeAuditEntry(String entry) {
-        // Minimal implementation: currently a no-op.
-        // Can be extended to write to a file (e.g. FileData/Backup/audit.txt) or logging.
+        Entry stamped = new Entry(System.currentTimeMillis(), entry);
+        if (buffer.offer(stamped)) {
+            accepted.incrementAndGet();
+            return;
+        }
+        // waits in slices so a writer that stopped or died never leaves the caller stuck
+        while (backpressure == Backpressure.BLOCK && running && writer.isAlive()) {
+            try {
+                if (buffer.offer(stamped, IDLE_POLL_MS, TimeUnit.MILLISECONDS)) {
+                    accepted.incrementAndGet();
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        dropped.incrementAndGet();
+    }
+
+    /** Waits until every entry accepted so far is in the file, forced if the policy forces. */
+    @Override
+    public void flush() {
+        long target = accepted.get();
+        synchronized (this) {
+            while (written < target && writer.isAlive()) {
+                try {
+                    wait(IDLE_POLL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            while (running || !buffer.isEmpty()) {
+                Entry first = buffer.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    buffer.drainTo(batch, MAX_BATCH - 1);
+                }
+                try {
+                    long lost = dropped.getAndSet(0);
+                    if (!batch.isEmpty() || lost > 0) append(batch, lost);
+                    // a quiet interval still gets the last group forced
+                    if (unforced && fsync == Fsync.INTERVAL
+                            && System.currentTimeMillis() - lastForce >= fsyncIntervalMillis) force();
+                } catch (RuntimeException e) {
+                    // one bad group must not stop the writer, later entries still go to the file
+                    LOG.error("Audit writer failed on {} entries, carrying on", batch.size(), e);
+                } finally {
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeFile();
+        }
+    }
+
+    private void append(List<Entry> batch, long lost) {
+        StringBuilder text = new StringBuilder(batch.size() * 64);
+        if (lost > 0) {
+            text.append(Instant.now()).append(' ').append(lost).append(" audit entries dropped, buffer full\n");
+        }
+        for (Entry entry : batch) {
+            text.append(Instant.ofEpochMilli(entry.millis())).append(' ').append(entry.text()).append('\n');
+        }
+        try {
+            // reopened here when an earlier rotation or open failed
+            if (channel == null) openFile();
+            ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) fileBytes += channel.write(bytes);
+            unforced = true;
+            if (fsync == Fsync.BATCH
+                    || (fsync == Fsync.INTERVAL && System.currentTimeMillis() - lastForce >= fsyncIntervalMillis)) {
+                force();
+            }
+            if (maxFileBytes > 0 && fileBytes >= maxFileBytes) rotate();
+        } catch (IOException e) {
+            LOG.error("Could not write {} audit entries to {}", batch.size(), auditFile, e);
+        } finally {
+            // counted even when lost, flush waits on this and must not hang on a failed group
+            synchronized (this) {
+                written += batch.size();
+                notifyAll();
+            }
+        }
+    }
+
+    private void force() {
+        if (channel == null) return;
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            LOG.error("Could not sync audit log {}", auditFile, e);
+        }
+        lastForce = System.currentTimeMillis();
+        unforced = false;
+    }
+
+    //audit.log -> audit.log.1 -> ... -> audit.log.<maxFiles>, the oldest falls off
+    //the closed channel is dropped first, so a failed shift leaves append to reopen the file
+    private void rotate() throws IOException {
+        if (fsync != Fsync.NONE && unforced) force();
+        FileChannel closing = channel;
+        channel = null;
+        closing.close();
+        if (maxFiles == 0) {
+            userIO.deleteIfExists(auditFile);
+        } else {
+            userIO.deleteIfExists(auditFile + "." + maxFiles);
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                if (userIO.exists(auditFile + "." + i)) userIO.move(auditFile + "." + i, auditFile + "." + (i + 1));
+            }
+            userIO.move(auditFile, auditFile + ".1");
+        }
+        openFile();
+    }
+
+    private void openFile() throws IOException {
+        channel = userIO.newAppendChannel(auditFile);
+        fileBytes = channel.size();
+        lastForce = System.currentTimeMillis();
+        unforced = false;
+    }
+
+    private void closeFile() {
+        try {
+            if (fsync != Fsync.NONE && unforced) force();
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            LOG.error("Could not close audit log {}", auditFile, e);
+        }
     }
 }
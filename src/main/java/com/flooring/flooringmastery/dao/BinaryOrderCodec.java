@@ -0,0 +1,243 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.model.Order;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Columnar binary layout for one day of orders.
+ * <pre>
+ * int magic, int version, int rows
+ * state dictionary:   short count, then (short length, UTF-8 bytes) per entry
+ * product dictionary: short count, then (short length, UTF-8 bytes) per entry
+ * int[rows]   order numbers
+ * short[rows] state ids, -1 for none
+ * short[rows] product ids, -1 for none
+ * per money/area column: long[rows] unscaled values, byte[rows] scales (NULL_VALUE marks a missing value)
+ * customer names: (short length, UTF-8 bytes) per row, -1 length for none
+ * </pre>
+ * Each value keeps its own scale so a text file converts to binary and back unchanged.
+ * Every numeric column sits at a fixed offset once the dictionaries are read,
+ * which is what lets sumColumn scan a single column without building orders.
+ */
+public class BinaryOrderCodec {
+
+    public enum Column {
+        TAX_RATE, AREA, COST_PER_SQUARE_FOOT, LABOR_COST_PER_SQUARE_FOOT,
+        MATERIAL_COST, LABOR_COST, TAX, TOTAL
+    }
+
+    private static final int MAGIC = 0x464D4F42; // "FMOB"
+    private static final int VERSION = 1;
+    private static final long NULL_VALUE = Long.MIN_VALUE;
+
+    private BinaryOrderCodec() {
+    }
+
+    public static byte[] encode(Collection<Order> orders) {
+        List<Order> rows = new ArrayList<>(orders);
+        rows.sort(Comparator.comparingInt(Order::getOrderNumber));
+
+        Map<String, Integer> states = new LinkedHashMap<>();
+        Map<String, Integer> products = new LinkedHashMap<>();
+        for (Order o : rows) {
+            if (o.getState() != null) states.putIfAbsent(o.getState(), states.size());
+            if (o.getProductType() != null) products.putIfAbsent(o.getProductType(), products.size());
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + rows.size() * 96);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows.size());
+            writeDictionary(out, states.keySet());
+            writeDictionary(out, products.keySet());
+
+            for (Order o : rows) out.writeInt(o.getOrderNumber());
+            for (Order o : rows) out.writeShort(o.getState() == null ? -1 : states.get(o.getState()));
+            for (Order o : rows) out.writeShort(o.getProductType() == null ? -1 : products.get(o.getProductType()));
+
+            for (Column column : Column.values()) {
+                for (Order o : rows) {
+                    BigDecimal value = get(o, column);
+                    out.writeLong(value == null ? NULL_VALUE : unscaled(value, o, column));
+                }
+                for (Order o : rows) {
+                    BigDecimal value = get(o, column);
+                    out.writeByte(value == null ? 0 : value.scale());
+                }
+            }
+
+            for (Order o : rows) writeString(out, o.getCustomerName());
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static List<Order> decode(byte[] data, LocalDate date) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        int rows = readHeader(in);
+        String[] states = readDictionary(in);
+        String[] products = readDictionary(in);
+
+        Order[] orders = new Order[rows];
+        for (int i = 0; i < rows; i++) {
+            Order o = new Order();
+            o.setOrderNumber(in.getInt());
+            o.setOrderDate(date);
+            orders[i] = o;
+        }
+        for (int i = 0; i < rows; i++) {
+            short id = in.getShort();
+            if (id >= 0) orders[i].setState(states[id]);
+        }
+        for (int i = 0; i < rows; i++) {
+            short id = in.getShort();
+            if (id >= 0) orders[i].setProductType(products[id]);
+        }
+
+        long[] unscaled = new long[rows];
+        for (Column column : Column.values()) {
+            for (int i = 0; i < rows; i++) unscaled[i] = in.getLong();
+            for (int i = 0; i < rows; i++) {
+                byte scale = in.get();
+                if (unscaled[i] != NULL_VALUE) set(orders[i], column, BigDecimal.valueOf(unscaled[i], scale));
+            }
+        }
+
+        for (int i = 0; i < rows; i++) orders[i].setCustomerName(readString(in));
+        return new ArrayList<>(Arrays.asList(orders));
+    }
+
+    //sums one column straight from the encoded bytes, missing values count as zero
+    public static BigDecimal sumColumn(byte[] data, Column column) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        int rows = readHeader(in);
+        readDictionary(in);
+        readDictionary(in);
+
+        int columnStart = in.position() + rows * (4 + 2 + 2) + column.ordinal() * rows * (8 + 1);
+        int scaleStart = columnStart + rows * 8;
+
+        // accumulate per scale in longs, only combining the handful of distinct scales at the end
+        Map<Integer, Long> sums = new HashMap<>();
+        BigDecimal overflow = BigDecimal.ZERO;
+        for (int i = 0; i < rows; i++) {
+            long value = in.getLong(columnStart + i * 8);
+            if (value == NULL_VALUE) continue;
+            int scale = in.get(scaleStart + i);
+            long current = sums.getOrDefault(scale, 0L);
+            try {
+                sums.put(scale, Math.addExact(current, value));
+            } catch (ArithmeticException e) {
+                overflow = overflow.add(BigDecimal.valueOf(current, scale));
+                sums.put(scale, value);
+            }
+        }
+
+        BigDecimal total = overflow;
+        for (Map.Entry<Integer, Long> e : sums.entrySet()) {
+            total = total.add(BigDecimal.valueOf(e.getValue(), e.getKey()));
+        }
+        return total;
+    }
+
+    //order numbers only, used to rebuild the high-water mark
+    public static int[] readOrderNumbers(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        int rows = readHeader(in);
+        readDictionary(in);
+        readDictionary(in);
+        int[] numbers = new int[rows];
+        for (int i = 0; i < rows; i++) numbers[i] = in.getInt();
+        return numbers;
+    }
+
+    private static long unscaled(BigDecimal value, Order o, Column column) {
+        if (value.scale() < Byte.MIN_VALUE || value.scale() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Order " + o.getOrderNumber() + " " + column + " has unsupported scale " + value);
+        }
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() > 63 || unscaled.longValue() == NULL_VALUE) {
+            throw new IllegalArgumentException("Order " + o.getOrderNumber() + " " + column + " does not fit in a scaled long: " + value);
+        }
+        return unscaled.longValue();
+    }
+
+    private static int readHeader(ByteBuffer in) {
+        if (in.getInt() != MAGIC) throw new IllegalArgumentException("Not a binary orders file");
+        int version = in.getInt();
+        if (version != VERSION) throw new IllegalArgumentException("Unsupported binary orders version " + version);
+        return in.getInt();
+    }
+
+    private static void writeDictionary(DataOutputStream out, Collection<String> entries) throws IOException {
+        if (entries.size() > Short.MAX_VALUE) throw new IllegalArgumentException("Too many distinct values for a dictionary");
+        out.writeShort(entries.size());
+        for (String entry : entries) writeString(out, entry);
+    }
+
+    private static String[] readDictionary(ByteBuffer in) {
+        String[] entries = new String[in.getShort()];
+        for (int i = 0; i < entries.length; i++) entries[i] = readString(in);
+        return entries;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length > Short.MAX_VALUE) throw new IllegalArgumentException("Value too long for binary orders file");
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0) return null;
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static BigDecimal get(Order o, Column column) {
+        switch (column) {
+            case TAX_RATE: return o.getTaxRate();
+            case AREA: return o.getArea();
+            case COST_PER_SQUARE_FOOT: return o.getCostPerSquareFoot();
+            case LABOR_COST_PER_SQUARE_FOOT: return o.getLaborCostPerSquareFoot();
+            case MATERIAL_COST: return o.getMaterialCost();
+            case LABOR_COST: return o.getLaborCost();
+            case TAX: return o.getTax();
+            default: return o.getTotal();
+        }
+    }
+
+    private static void set(Order o, Column column, BigDecimal value) {
+        switch (column) {
+            case TAX_RATE: o.setTaxRate(value); break;
+            case AREA: o.setArea(value); break;
+            case COST_PER_SQUARE_FOOT: o.setCostPerSquareFoot(value); break;
+            case LABOR_COST_PER_SQUARE_FOOT: o.setLaborCostPerSquareFoot(value); break;
+            case MATERIAL_COST: o.setMaterialCost(value); break;
+            case LABOR_COST: o.setLaborCost(value); break;
+            case TAX: o.setTax(value); break;
+            default: o.setTotal(value); break;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.flooring.flooringmastery.dao;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+//counts the characters read through it, the same as bytes for the ascii order files
+class CountingReader extends FilterReader {
+
+    private long count;
+
+    CountingReader(Reader in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int c = super.read();
+        if (c >= 0) count++;
+        return c;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        int n = super.read(buffer, offset, length);
+        if (n > 0) count += n;
+        return n;
+    }
+
+    long getCount() {
+        return count;
+    }
+}
@@ -1,10 +1,16 @@
 package com.flooring.flooringmastery.dao;
 import com.flooring.flooringmastery.model.Order;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
 
 import com.flooring.flooringmastery.exceptions.PersistenceException;
 
 public interface ExportDao {
-    void exportData(Map<LocalDate, Map<Integer, Order>> orders) throws PersistenceException;
+    //both full exports return the paths of the files that now make up the export, one per slice
+    List<String> exportData(Map<LocalDate, Map<Integer, Order>> orders) throws PersistenceException;
+    //streams every stored order to the export file one date at a time, oldest first
+    List<String> exportData(OrderDao orderDao) throws PersistenceException;
+    //exports only the dates from..to inclusive to a file of their own, returns its path
+    String exportData(OrderDao orderDao, LocalDate from, LocalDate to) throws PersistenceException;
 }
@@ -3,68 +3,599 @@ package com.flooring.flooringmastery.dao;
 import com.flooring.flooringmastery.model.Order;
 import com.flooring.flooringmastery.exceptions.PersistenceException;
 import com.flooring.flooringmastery.view.UserIO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.*;
 
+/**
+ * Writes every order to FileData/Backup/DataExport.txt, ordered by date then order number.
+ * Dates are read and formatted in parallel on a fork-join pool and the finished chunks are written
+ * in date order, so the file is byte-identical to a single-threaded export. Only a small window of
+ * formatted dates is held at once, memory stays bounded by a few days rather than the whole history.
+ * Every file is written next to its target and renamed into place, so an export is never half-written.
+ * <p>
+ * The export can be compressed (gzip or deflate) and split into slices, one per month
+ * (DataExport_2025-03.txt) or by size (DataExport_0001.txt). Each slice has its own header and is
+ * compressed on its own, so one slice can be read without touching the others. DataExport.index
+ * lists the slices of the latest export with the dates each one covers.
+ * <p>
+ * A date-range export goes to its own DataExport_from_to.txt file and only reads the dates inside
+ * the range, it leaves the full export, its index and its manifest alone.
+ * <p>
+ * Raw mode copies each stored csv row verbatim behind its date, sorted on the leading order number,
+ * without building Order objects or BigDecimals. Dates the OrderDao cannot hand over as plain rows
+ * (pending journal records, unsaved changes, non-text stores) are formatted from orders as usual.
+ * Because the text is not re-parsed, a value is exported exactly as it is stored.
+ * <p>
+ * In incremental mode DataExport.manifest records each date's stamp from the OrderDao together with
+ * the length and CRC32 of its rows. The next export renders only dates whose stamp changed and
+ * copies every other date's rows from the previous export. A month slice whose dates are all
+ * unchanged is left on disk as it is. If the previous export no longer matches its manifest it is
+ * ignored and every date is rendered. The stamp of a text date is its files' size and modification
+ * time, which a same-size edit within one tick of a coarse clock does not change, so the mode is off
+ * by default.
+ */
 @Repository
 public class ExportDaoFileImpl implements ExportDao {
-    private static final String EXPORT_FILE = "FileData/Backup/DataExport.txt";
+    private static final String BACKUP_FOLDER = "FileData/Backup/";
+    private static final String EXPORT_NAME = "DataExport";
+    private static final String MANIFEST_FILE = BACKUP_FOLDER + "DataExport.manifest";
+    private static final String MANIFEST_HEADER = "Date,Stamp,Chars,Crc32,Slice";
+    private static final String INDEX_FILE = BACKUP_FOLDER + "DataExport.index";
+    private static final String INDEX_HEADER = "File,FirstDate,LastDate,Dates,Chars";
+    private static final String HEADER = "OrderDate,OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+    private static final String HEADER_LINE = HEADER + System.lineSeparator();
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    public enum Compression {
+        NONE(""), GZIP(".gz"), DEFLATE(".deflate");
+
+        private final String suffix;
+
+        Compression(String suffix) {
+            this.suffix = suffix;
+        }
+    }
+
+    public enum Rolling { NONE, MONTH, SIZE }
+
     private final UserIO userIO;
+    private final int parallelism;
+    private final boolean incremental;
+    private final Compression compression;
+    private final Rolling rolling;
+    //size rolling starts a new slice before a date that would take the slice past this many characters
+    private final long maxSliceChars;
+    private final boolean raw;
+
+    //one date's orders in any order, the export sorts them
+    private interface DateOrders {
+        Collection<Order> get(LocalDate date) throws PersistenceException;
+
+        //the date's stored csv rows for a raw export, null to format the orders instead
+        default List<String> rawRows(LocalDate date) throws PersistenceException {
+            return null;
+        }
+    }
+
+    //one date's rows as they sit in the export
+    private static final class Chunk {
+        final LocalDate date;
+        final String stamp;
+        long chars;
+        long crc;
+        String slice;
+        //the previous export's rows for this date when they can be copied instead of rendered
+        Chunk reuse;
+        ForkJoinTask<StringBuilder> rendering;
+
+        Chunk(LocalDate date, String stamp) {
+            this.date = date;
+            this.stamp = stamp;
+        }
+    }
+
+    //the previous export does not match its manifest
+    private static final class StaleExportException extends Exception {
+    }
 
     public ExportDaoFileImpl(UserIO userIO) {
+        this(userIO, 0, false);
+    }
+
+    public ExportDaoFileImpl(UserIO userIO, int parallelism) {
+        this(userIO, parallelism, false);
+    }
+
+    public ExportDaoFileImpl(UserIO userIO, int parallelism, boolean incremental) {
+        this(userIO, parallelism, incremental, "none", "none", 0, false);
+    }
+
+    //parallelism 0 uses every core, 1 formats on the calling thread
+    @Autowired
+    public ExportDaoFileImpl(UserIO userIO,
+                             @Value("${flooring.export.parallelism:0}") int parallelism,
+                             @Value("${flooring.export.incremental:false}") boolean incremental,
+                             @Value("${flooring.export.compression:none}") String compression,
+                             @Value("${flooring.export.rolling:none}") String rolling,
+                             @Value("${flooring.export.max-slice-chars:67108864}") long maxSliceChars,
+                             @Value("${flooring.export.raw:false}") boolean raw) {
         this.userIO = userIO;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.incremental = incremental;
+        this.compression = Compression.valueOf(compression.trim().toUpperCase());
+        this.rolling = Rolling.valueOf(rolling.trim().toUpperCase());
+        this.maxSliceChars = maxSliceChars;
+        this.raw = raw;
+    }
+
+    @Override
+    public List<String> exportData(Map<LocalDate, Map<Integer, Order>> orders) throws PersistenceException {
+        List<LocalDate> dates = new ArrayList<>(orders.keySet());
+        Collections.sort(dates);
+        List<Chunk> chunks = new ArrayList<>();
+        for (LocalDate date : dates) chunks.add(new Chunk(date, null));
+        return writeExport(chunks, date -> {
+            Map<Integer, Order> map = orders.get(date);
+            return map == null ? List.of() : map.values();
+        });
+    }
+
+    @Override
+    public List<String> exportData(OrderDao orderDao) throws PersistenceException {
+        List<Chunk> chunks = new ArrayList<>();
+        for (LocalDate date : orderDao.getOrderDates()) {
+            chunks.add(new Chunk(date, incremental ? orderDao.getDateStamp(date) : null));
+        }
+        return writeExport(chunks, source(orderDao));
     }
 
     @Override
-    public void exportData(Map<LocalDate, Map<Integer, Order>> orders) throws PersistenceException {
+    public String exportData(OrderDao orderDao, LocalDate from, LocalDate to) throws PersistenceException {
+        // the date list comes from the DAO's manifest, only files inside the range are ever opened
+        List<Chunk> chunks = new ArrayList<>();
+        for (LocalDate date : orderDao.getOrderDates()) {
+            if (!date.isBefore(from) && !date.isAfter(to)) chunks.add(new Chunk(date, null));
+        }
+
+        String file = EXPORT_NAME + "_" + from + "_" + to + ".txt" + compression.suffix;
         try {
-            // ensure parent dir exists
-            int lastSlash = EXPORT_FILE.lastIndexOf('/');
-            if (lastSlash == -1) lastSlash = EXPORT_FILE.lastIndexOf('\\');
-            if (lastSlash != -1) {
-                String parent = EXPORT_FILE.substring(0, lastSlash);
-                userIO.createDirectories(parent);
+            userIO.createDirectories(BACKUP_FOLDER);
+            writeChunks(chunks, source(orderDao), List.of(), file);
+        } catch (StaleExportException impossible) {
+            // nothing is copied when there is no previous export
+            throw new IllegalStateException(impossible);
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to export data to " + BACKUP_FOLDER + file, e);
+        }
+        return BACKUP_FOLDER + file;
+    }
+
+    private DateOrders source(OrderDao orderDao) {
+        return new DateOrders() {
+            @Override
+            public Collection<Order> get(LocalDate date) throws PersistenceException {
+                return orderDao.readOrdersForDate(date);
+            }
+
+            @Override
+            public List<String> rawRows(LocalDate date) throws PersistenceException {
+                return raw ? orderDao.readRawRows(date) : null;
             }
+        };
+    }
+
+    //returns every slice of the new export, including month slices that were kept as they were
+    private List<String> writeExport(List<Chunk> chunks, DateOrders source) throws PersistenceException {
+        try {
+            userIO.createDirectories(BACKUP_FOLDER);
+            List<String> previousFiles = readIndexFiles();
 
-            List<String> lines = new ArrayList<>();
-            lines.add("OrderDate,OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total");
-
-            List<LocalDate> dates = new ArrayList<>(orders.keySet());
-            Collections.sort(dates);
-
-            for (LocalDate date : dates) {
-                Map<Integer, Order> map = orders.get(date);
-                if (map == null) continue;
-                List<Integer> nums = new ArrayList<>(map.keySet());
-                Collections.sort(nums);
-                for (Integer num : nums) {
-                    Order o = map.get(num);
-                    if (o == null) continue;
-                    String line = String.join(",",
-                            date.toString(),
-                            String.valueOf(o.getOrderNumber()),
-                            o.getCustomerName() == null ? "" : o.getCustomerName(),
-                            o.getState() == null ? "" : o.getState(),
-                            o.getTaxRate() == null ? "" : o.getTaxRate().toString(),
-                            o.getProductType() == null ? "" : o.getProductType(),
-                            o.getArea() == null ? "" : o.getArea().toString(),
-                            o.getCostPerSquareFoot() == null ? "" : o.getCostPerSquareFoot().toString(),
-                            o.getLaborCostPerSquareFoot() == null ? "" : o.getLaborCostPerSquareFoot().toString(),
-                            o.getMaterialCost() == null ? "" : o.getMaterialCost().toString(),
-                            o.getLaborCost() == null ? "" : o.getLaborCost().toString(),
-                            o.getTax() == null ? "" : o.getTax().toString(),
-                            o.getTotal() == null ? "" : o.getTotal().toString()
-                    );
-                    lines.add(line);
+            List<Chunk> previous = incremental ? readManifest() : List.of();
+            Map<String, List<Chunk>> slices;
+            try {
+                slices = writeChunks(chunks, source, previous, null);
+            } catch (StaleExportException e) {
+                try {
+                    slices = writeChunks(chunks, source, List.of(), null);
+                } catch (StaleExportException impossible) {
+                    // nothing is copied when there is no previous export
+                    throw new IllegalStateException(impossible);
                 }
             }
 
-            userIO.writeLines(EXPORT_FILE, lines);
+            writeIndex(slices);
+            if (incremental) {
+                writeManifest(chunks);
+            } else {
+                userIO.deleteIfExists(MANIFEST_FILE);
+            }
+            // slices from earlier exports that this one no longer uses
+            for (String file : previousFiles) {
+                if (!slices.containsKey(file)) userIO.deleteIfExists(BACKUP_FOLDER + file);
+            }
+            List<String> files = new ArrayList<>(slices.size());
+            for (String slice : slices.keySet()) files.add(BACKUP_FOLDER + slice);
+            return files;
         } catch (IOException e) {
-            throw new PersistenceException("Failed to export data to " + EXPORT_FILE, e);
+            throw new PersistenceException("Failed to export data to " + BACKUP_FOLDER + EXPORT_NAME, e);
+        }
+    }
+
+    //writes every slice that changed and returns all slices of the export with their chunks, in order
+    //singleFile puts every date in that one file whatever the rolling setting
+    private Map<String, List<Chunk>> writeChunks(List<Chunk> chunks, DateOrders source, List<Chunk> previous,
+                                                 String singleFile)
+            throws IOException, PersistenceException, StaleExportException {
+        boolean bySize = singleFile == null && rolling == Rolling.SIZE;
+        // dates whose stamp is unchanged since the last export keep their old rows
+        Map<LocalDate, Chunk> before = new HashMap<>();
+        Map<String, List<Chunk>> previousSlices = new HashMap<>();
+        for (Chunk old : previous) {
+            before.put(old.date, old);
+            previousSlices.computeIfAbsent(old.slice, s -> new ArrayList<>()).add(old);
+        }
+        for (Chunk chunk : chunks) {
+            Chunk old = before.get(chunk.date);
+            chunk.reuse = chunk.stamp != null && old != null && chunk.stamp.equals(old.stamp) ? old : null;
+            chunk.slice = singleFile != null ? singleFile : bySize ? null : sliceName(chunk.date, 0);
+        }
+        Set<String> kept = keptSlices(chunks, previousSlices);
+
+        Map<String, List<Chunk>> slices = new LinkedHashMap<>();
+        List<String> written = new ArrayList<>();
+        boolean published = false;
+        ForkJoinPool pool = parallelism == 1 ? null : new ForkJoinPool(parallelism);
+        try {
+            try (PreviousExport old = new PreviousExport(previousSlices)) {
+                Writer out = null;
+                long sliceChars = 0;
+                int sliceNumber = 0;
+                try {
+                    // up to two renders per worker run ahead of the date being written
+                    int window = parallelism * 2;
+                    int submitted = 0;
+                    for (int i = 0; i < chunks.size(); i++) {
+                        for (; pool != null && submitted < chunks.size() && submitted < i + window; submitted++) {
+                            Chunk ahead = chunks.get(submitted);
+                            if (ahead.reuse == null) ahead.rendering = pool.submit(() -> formatDate(ahead.date, source));
+                        }
+
+                        Chunk chunk = chunks.get(i);
+                        if (kept.contains(chunk.slice)) {
+                            chunk.chars = chunk.reuse.chars;
+                            chunk.crc = chunk.reuse.crc;
+                            slices.computeIfAbsent(chunk.slice, s -> new ArrayList<>()).add(chunk);
+                            continue;
+                        }
+
+                        StringBuilder rows = null;
+                        if (chunk.reuse != null) {
+                            chunk.chars = chunk.reuse.chars;
+                            chunk.crc = chunk.reuse.crc;
+                        } else {
+                            rows = chunk.rendering != null ? await(chunk.rendering) : formatDate(chunk.date, source);
+                            chunk.rendering = null;
+                            chunk.chars = rows.length();
+                            chunk.crc = crc(rows);
+                        }
+
+                        if (bySize) {
+                            // a date is never split, a slice only rolls over between dates
+                            boolean full = out != null && sliceChars > HEADER_LINE.length()
+                                    && sliceChars + chunk.chars > maxSliceChars;
+                            chunk.slice = sliceName(chunk.date, full || out == null ? ++sliceNumber : sliceNumber);
+                        }
+                        if (!slices.containsKey(chunk.slice)) {
+                            if (out != null) out.close();
+                            written.add(chunk.slice);
+                            out = openSlice(BACKUP_FOLDER + chunk.slice + ".tmp");
+                            out.write(HEADER_LINE);
+                            sliceChars = HEADER_LINE.length();
+                        }
+                        slices.computeIfAbsent(chunk.slice, s -> new ArrayList<>()).add(chunk);
+
+                        if (rows != null) {
+                            out.append(rows);
+                        } else {
+                            old.copy(chunk.reuse, out);
+                        }
+                        sliceChars += chunk.chars;
+                    }
+                    if (chunks.isEmpty()) {
+                        // an empty export is still one file with the header
+                        String slice = singleFile != null ? singleFile : sliceName(LocalDate.now(), 1);
+                        written.add(slice);
+                        slices.put(slice, new ArrayList<>());
+                        out = openSlice(BACKUP_FOLDER + slice + ".tmp");
+                        out.write(HEADER_LINE);
+                    }
+                } finally {
+                    if (out != null) out.close();
+                }
+            }
+            for (String slice : written) {
+                userIO.move(BACKUP_FOLDER + slice + ".tmp", BACKUP_FOLDER + slice);
+            }
+            published = true;
+        } finally {
+            if (pool != null) pool.shutdownNow();
+            if (!published) {
+                for (String slice : written) deleteQuietly(BACKUP_FOLDER + slice + ".tmp");
+            }
+        }
+        return slices;
+    }
+
+    //month slices whose dates are exactly the ones last exported there, all unchanged, need no rewrite
+    private Set<String> keptSlices(List<Chunk> chunks, Map<String, List<Chunk>> previousSlices) throws IOException {
+        Set<String> kept = new HashSet<>();
+        if (rolling != Rolling.MONTH) return kept;
+
+        Map<String, List<Chunk>> bySlice = new LinkedHashMap<>();
+        for (Chunk chunk : chunks) bySlice.computeIfAbsent(chunk.slice, s -> new ArrayList<>()).add(chunk);
+        for (Map.Entry<String, List<Chunk>> slice : bySlice.entrySet()) {
+            List<Chunk> old = previousSlices.get(slice.getKey());
+            if (old == null || old.size() != slice.getValue().size()) continue;
+            boolean unchanged = true;
+            for (int i = 0; i < old.size() && unchanged; i++) {
+                unchanged = slice.getValue().get(i).reuse == old.get(i);
+            }
+            if (unchanged && userIO.exists(BACKUP_FOLDER + slice.getKey())) kept.add(slice.getKey());
+        }
+        return kept;
+    }
+
+    private String sliceName(LocalDate date, int number) {
+        String extension = ".txt" + compression.suffix;
+        switch (rolling) {
+            case MONTH: return EXPORT_NAME + "_" + date.format(MONTH) + extension;
+            case SIZE: return EXPORT_NAME + String.format("_%04d", number) + extension;
+            default: return EXPORT_NAME + extension;
+        }
+    }
+
+    private Writer openSlice(String path) throws IOException {
+        OutputStream file = userIO.newOutputStream(path);
+        OutputStream out;
+        switch (compression) {
+            case GZIP: out = new GZIPOutputStream(file, 64 * 1024); break;
+            case DEFLATE: out = new DeflaterOutputStream(file); break;
+            default: out = file;
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    //the compression is taken from the file name, so slices written with other settings still read back
+    private Reader readSlice(String file) throws IOException {
+        InputStream in = new BufferedInputStream(userIO.newInputStream(BACKUP_FOLDER + file), 64 * 1024);
+        if (file.endsWith(Compression.GZIP.suffix)) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        } else if (file.endsWith(Compression.DEFLATE.suffix)) {
+            in = new InflaterInputStream(in);
+        }
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    //reads the previous export's slices front to back, skipping the rows of dates that are rendered again
+    private final class PreviousExport implements AutoCloseable {
+        private final Map<String, List<Chunk>> layout;
+        private final char[] buffer = new char[8192];
+        private String openSlice;
+        private Reader in;
+        private Iterator<Chunk> position;
+
+        PreviousExport(Map<String, List<Chunk>> layout) {
+            this.layout = layout;
+        }
+
+        void copy(Chunk wanted, Writer out) throws IOException, StaleExportException {
+            if (!wanted.slice.equals(openSlice)) open(wanted.slice);
+            while (position.hasNext()) {
+                Chunk next = position.next();
+                if (next == wanted) {
+                    if (transfer(next.chars, out) != next.crc) throw new StaleExportException();
+                    return;
+                }
+                transfer(next.chars, null);
+            }
+            throw new StaleExportException();
+        }
+
+        private void open(String slice) throws IOException, StaleExportException {
+            close();
+            openSlice = slice;
+            if (!userIO.exists(BACKUP_FOLDER + slice)) throw new StaleExportException();
+            in = readSlice(slice);
+            position = layout.get(slice).iterator();
+            if (transfer(HEADER_LINE.length(), null) != crc(HEADER_LINE)) throw new StaleExportException();
+        }
+
+        //moves the next chars of the open slice to out, or drops them when out is null, returning their CRC32
+        private long transfer(long chars, Writer out) throws IOException, StaleExportException {
+            CRC32 crc = new CRC32();
+            long left = chars;
+            while (left > 0) {
+                int n = in.read(buffer, 0, (int) Math.min(buffer.length, left));
+                if (n == -1) throw new StaleExportException();
+                for (int i = 0; i < n; i++) update(crc, buffer[i]);
+                if (out != null) out.write(buffer, 0, n);
+                left -= n;
+            }
+            return crc.getValue();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) in.close();
+            in = null;
+            openSlice = null;
+        }
+    }
+
+    private List<Chunk> readManifest() throws IOException {
+        List<String> lines = userIO.readAllLines(MANIFEST_FILE);
+        if (lines.isEmpty() || !MANIFEST_HEADER.equals(lines.get(0))) return List.of();
+
+        List<Chunk> chunks = new ArrayList<>();
+        try {
+            for (int i = 1; i < lines.size(); i++) {
+                String[] fields = lines.get(i).split(",");
+                if (fields.length != 5) return List.of();
+                Chunk chunk = new Chunk(LocalDate.parse(fields[0]), "-".equals(fields[1]) ? null : fields[1]);
+                chunk.chars = Long.parseLong(fields[2]);
+                chunk.crc = Long.parseLong(fields[3]);
+                chunk.slice = fields[4];
+                chunks.add(chunk);
+            }
+        } catch (RuntimeException e) {
+            return List.of(); // unreadable manifest, export everything
+        }
+        return chunks;
+    }
+
+    private void writeManifest(List<Chunk> chunks) throws IOException {
+        List<String> lines = new ArrayList<>(chunks.size() + 1);
+        lines.add(MANIFEST_HEADER);
+        for (Chunk chunk : chunks) {
+            lines.add(chunk.date + "," + (chunk.stamp == null ? "-" : chunk.stamp) + ","
+                    + chunk.chars + "," + chunk.crc + "," + chunk.slice);
+        }
+        userIO.writeLines(MANIFEST_FILE, lines);
+    }
+
+    //slice file names of the previous export, so slices it no longer needs can be removed
+    private List<String> readIndexFiles() throws IOException {
+        List<String> files = new ArrayList<>();
+        List<String> lines = userIO.readAllLines(INDEX_FILE);
+        for (int i = 1; i < lines.size(); i++) {
+            int comma = lines.get(i).indexOf(',');
+            if (comma > 0) files.add(lines.get(i).substring(0, comma));
+        }
+        return files;
+    }
+
+    private void writeIndex(Map<String, List<Chunk>> slices) throws IOException {
+        List<String> lines = new ArrayList<>(slices.size() + 1);
+        lines.add(INDEX_HEADER);
+        for (Map.Entry<String, List<Chunk>> slice : slices.entrySet()) {
+            List<Chunk> chunks = slice.getValue();
+            long chars = HEADER_LINE.length();
+            for (Chunk chunk : chunks) chars += chunk.chars;
+            String first = chunks.isEmpty() ? "" : chunks.get(0).date.toString();
+            String last = chunks.isEmpty() ? "" : chunks.get(chunks.size() - 1).date.toString();
+            lines.add(slice.getKey() + "," + first + "," + last + "," + chunks.size() + "," + chars);
+        }
+        userIO.writeLines(INDEX_FILE, lines);
+    }
+
+    private StringBuilder await(ForkJoinTask<StringBuilder> chunk) throws PersistenceException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Export was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PersistenceException) throw (PersistenceException) e.getCause();
+            throw new PersistenceException("Failed to format export rows: " + e.getCause(), e.getCause());
+        }
+    }
+
+    //one date's rows sorted by order number, the same text whichever thread builds it
+    private StringBuilder formatDate(LocalDate date, DateOrders source) throws PersistenceException {
+        List<String> rows = source.rawRows(date);
+        if (rows != null) return copyRows(date, rows);
+
+        List<Order> day = new ArrayList<>(source.get(date));
+        day.removeIf(Objects::isNull);
+        day.sort(Comparator.comparingInt(Order::getOrderNumber));
+        StringBuilder chunk = new StringBuilder(day.size() * 128);
+        for (Order o : day) {
+            writeRow(chunk, date, o);
+        }
+        return chunk;
+    }
+
+    //stored rows behind their date, sorted by order number packed with the row index into one long
+    private StringBuilder copyRows(LocalDate date, List<String> rows) {
+        long[] keys = new long[rows.size()];
+        int count = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            int number = leadingOrderNumber(rows.get(i));
+            if (number >= 0) keys[count++] = ((long) number << 32) | i;
+        }
+        Arrays.sort(keys, 0, count);
+
+        String prefix = date + ",";
+        StringBuilder chunk = new StringBuilder(count * 128);
+        for (int k = 0; k < count; k++) {
+            // a number stored twice keeps its last row, as loading the file would
+            if (k + 1 < count && keys[k + 1] >>> 32 == keys[k] >>> 32) continue;
+            chunk.append(prefix).append(rows.get((int) keys[k])).append(System.lineSeparator());
+        }
+        return chunk;
+    }
+
+    //digits before the first comma, -1 for rows the order parser would skip
+    private static int leadingOrderNumber(String row) {
+        int number = 0;
+        int i = 0;
+        for (; i < row.length() && row.charAt(i) != ','; i++) {
+            char c = row.charAt(i);
+            if (c < '0' || c > '9' || number > (Integer.MAX_VALUE - 9) / 10) return -1;
+            number = number * 10 + (c - '0');
+        }
+        return i == 0 ? -1 : number;
+    }
+
+    private void writeRow(StringBuilder out, LocalDate date, Order o) {
+        out.append(date).append(',').append(o.getOrderNumber());
+        field(out, o.getCustomerName() == null ? null : OrderFileWriter.quote(o.getCustomerName()));
+        field(out, o.getState());
+        field(out, o.getTaxRate());
+        field(out, o.getProductType());
+        field(out, o.getArea());
+        field(out, o.getCostPerSquareFoot());
+        field(out, o.getLaborCostPerSquareFoot());
+        field(out, o.getMaterialCost());
+        field(out, o.getLaborCost());
+        field(out, o.getTax());
+        field(out, o.getTotal());
+        out.append(System.lineSeparator());
+    }
+
+    private void field(StringBuilder out, Object value) {
+        out.append(',');
+        if (value != null) out.append(value);
+    }
+
+    private static long crc(CharSequence text) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < text.length(); i++) update(crc, text.charAt(i));
+        return crc.getValue();
+    }
+
+    //both bytes of the char, so the checksum covers exactly the text that was written
+    private static void update(CRC32 crc, char c) {
+        crc.update(c >>> 8);
+        crc.update(c);
+    }
+
+    private void deleteQuietly(String path) {
+        try {
+            userIO.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // a stale temp file is overwritten by the next export
         }
     }
 }
@@ -0,0 +1,11 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.model.Order;
+
+import java.util.Map;
+
+public interface ImportDao {
+    //orders from an import file keyed by line number, rows that cannot be parsed go to rowErrors instead
+    Map<Integer, Order> readOrders(String fileName, Map<Integer, String> rowErrors) throws PersistenceException;
+}
@@ -0,0 +1,80 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.view.UserIO;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads orders exported by the quoting system, one per line as OrderDate,CustomerName,State,ProductType,Area
+ * with the date as yyyy-MM-dd and an optional header. Customer names may contain commas, so the
+ * date is taken from the front and state, product and area from the back of each line; a name in
+ * double quotes is unquoted. The order files quote such names again when the orders are written.
+ * Only the fields are parsed here, checking and pricing the orders is left to the service.
+ */
+@Repository
+public class ImportDaoFileImpl implements ImportDao {
+
+    public static final String HEADER = "OrderDate,CustomerName,State,ProductType,Area";
+
+    private final UserIO userIO;
+
+    public ImportDaoFileImpl(UserIO userIO) {
+        this.userIO = userIO;
+    }
+
+    @Override
+    public Map<Integer, Order> readOrders(String fileName, Map<Integer, String> rowErrors) throws PersistenceException {
+        Map<Integer, Order> orders = new LinkedHashMap<>();
+        try (BufferedReader in = new BufferedReader(userIO.newReader(fileName))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (lineNumber == 1 && line.startsWith("OrderDate"))) continue;
+                try {
+                    orders.put(lineNumber, parse(line));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    rowErrors.put(lineNumber, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read import file " + fileName, e);
+        }
+        return orders;
+    }
+
+    private Order parse(String line) {
+        int first = line.indexOf(',');
+        int area = line.lastIndexOf(',');
+        int product = area < 0 ? -1 : line.lastIndexOf(',', area - 1);
+        int state = product < 0 ? -1 : line.lastIndexOf(',', product - 1);
+        if (first < 0 || state <= first) {
+            throw new IllegalArgumentException("Expected " + HEADER + " but found " + line);
+        }
+
+        Order order = new Order();
+        order.setOrderDate(LocalDate.parse(line.substring(0, first).trim()));
+        String name = line.substring(first + 1, state).trim();
+        if (name.length() > 1 && name.startsWith("\"") && name.endsWith("\"")) {
+            name = name.substring(1, name.length() - 1).replace("\"\"", "\"");
+        }
+        order.setCustomerName(name);
+        order.setState(line.substring(state + 1, product).trim().toUpperCase());
+        order.setProductType(line.substring(product + 1, area).trim());
+        try {
+            order.setArea(new BigDecimal(line.substring(area + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Area is not a number: " + line.substring(area + 1).trim());
+        }
+        return order;
+    }
+}
@@ -4,14 +4,66 @@ import com.flooring.flooringmastery.model.Order;
 import com.flooring.flooringmastery.exceptions.PersistenceException;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 public interface OrderDao {
     List<Order> getOrdersForDate(LocalDate date) throws PersistenceException;
     Order getOrder(LocalDate date, int orderNumber) throws PersistenceException;
+    //looks an order up by number alone, null if no date holds it
+    Order getOrder(int orderNumber) throws PersistenceException;
     Order addOrder(LocalDate date, Order order) throws PersistenceException;
+    //stores many orders for one date, implementations write the date once for the whole batch
+    default void addOrders(LocalDate date, Collection<Order> orders) throws PersistenceException {
+        for (Order order : orders) addOrder(date, order);
+    }
+    //hands update a copy of the date's orders and stores the orders it returns, implementations hold the date
+    //against other writers from the read to the write so nothing changed in between is overwritten or brought back
+    default List<Order> computeOnDate(LocalDate date, UnaryOperator<List<Order>> update) throws PersistenceException {
+        List<Order> changed = update.apply(new ArrayList<>(readOrdersForDate(date)));
+        if (!changed.isEmpty()) addOrders(date, changed);
+        return changed;
+    }
     Order removeOrder(LocalDate date, int orderNumber) throws PersistenceException;
+    //replaces an existing order in place, returns the previous order or null if there was none
+    Order updateOrder(LocalDate date, Order order) throws PersistenceException;
     void saveAllOrders() throws PersistenceException;
+    //the whole history in one list, nothing in the app calls it; full scans should use forEachOrder
     List<Order> getAllOrders() throws PersistenceException;
+    //every stored order in (date, order number) order, at most one date is held in memory at a time
+    default void forEachOrder(Consumer<Order> action) throws PersistenceException {
+        for (LocalDate date : getOrderDates()) {
+            List<Order> orders = new ArrayList<>(readOrdersForDate(date));
+            orders.sort(Comparator.comparingInt(Order::getOrderNumber));
+            orders.forEach(action);
+        }
+    }
+    //every date that has orders stored, oldest first, without reading any orders
+    List<LocalDate> getOrderDates() throws PersistenceException;
+    //one date's orders for a single pass such as an export, implementations may skip caching them
+    default List<Order> readOrdersForDate(LocalDate date) throws PersistenceException {
+        return getOrdersForDate(date);
+    }
+    //a date's csv rows exactly as stored, without the header, null when they cannot be had without building orders
+    default List<String> readRawRows(LocalDate date) throws PersistenceException {
+        return null;
+    }
+    //a value that changes whenever a date's stored orders change, null when it cannot be told cheaply
+    default String getDateStamp(LocalDate date) throws PersistenceException {
+        return null;
+    }
+    //runs listener after orders changed on disk by another tool were reloaded, implementations that never reload ignore it
+    default void addExternalChangeListener(Runnable listener) {
+    }
     int getNextOrderNumber() throws PersistenceException;
+    //reserves count consecutive numbers and returns the first, implementations keep the block contiguous under concurrency
+    default int allocateOrderNumbers(int count) throws PersistenceException {
+        int first = getNextOrderNumber();
+        for (int i = 1; i < count; i++) getNextOrderNumber();
+        return first;
+    }
 }
@@ -0,0 +1,412 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.view.UserIO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * OrderDao that keeps each day in a compact columnar Orders_MMddyyyy.bin file (see BinaryOrderCodec).
+ * Enabled with the "binary" Spring profile. Dates that only have a text file are read from it
+ * and move to binary the first time they change; the stale text file is then removed.
+ * convertToText turns a day back into the csv format without loss. Journals left by the text DAO
+ * are replayed into their csv at startup.
+ */
+@Repository
+@Profile("binary")
+public class OrderDaoBinaryImpl implements OrderDao {
+
+    private static final String DEFAULT_ORDER_FOLDER = "FileData/Orders/";
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("MMddyyyy");
+
+    private final Map<LocalDate, Map<Integer, Order>> ordersByDate = new HashMap<>();
+    //dates with a .bin or .txt file on disk
+    private final Set<LocalDate> knownDates = new HashSet<>();
+    private final OrderFileReader textReader = new OrderFileReader();
+    private final UserIO userIO;
+    private final String orderFolder;
+    private final String highWaterMarkFile;
+    //stamps of the order files the high-water mark is known to cover, shared with the text DAO
+    private OrderFileManifest fileManifest;
+    private int highWaterMark;
+    //last number handed out by getNextOrderNumber
+    private final AtomicInteger lastAllocated = new AtomicInteger();
+    //order number -> date for every loaded or scanned date
+    private final Map<Integer, LocalDate> orderIndex = new HashMap<>();
+    private final Set<LocalDate> indexedDates = new HashSet<>();
+
+    public OrderDaoBinaryImpl(UserIO userIO) {
+        this(userIO, DEFAULT_ORDER_FOLDER);
+    }
+
+    @Autowired
+    public OrderDaoBinaryImpl(UserIO userIO, @Value("${flooring.orders.folder:FileData/Orders/}") String orderFolder) {
+        this.userIO = userIO;
+        this.orderFolder = orderFolder.endsWith("/") ? orderFolder : orderFolder + "/";
+        this.highWaterMarkFile = this.orderFolder + "OrderNumber.txt";
+        try {
+            this.userIO.createDirectories(this.orderFolder);
+            replayJournals();
+            buildManifest();
+            loadHighWaterMark();
+            lastAllocated.set(highWaterMark);
+        } catch (PersistenceException | IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void buildManifest() {
+        String[] names = new File(orderFolder).list((dir, name) -> name.startsWith("Orders_")
+                && (name.endsWith(".bin") || name.endsWith(".txt")));
+        if (names == null) return;
+
+        for (String name : names) {
+            LocalDate date = dateOf(name);
+            if (date != null) knownDates.add(date);
+        }
+    }
+
+    //journals the text DAO left in journaled mode are folded into their csv before anything is read,
+    //the csv is deleted on the first binary write for its date and the journaled changes would go with it
+    private void replayJournals() throws PersistenceException {
+        String[] journals = new File(orderFolder).list((dir, name) -> name.startsWith("Orders_") && name.endsWith(".journal"));
+        if (journals == null || journals.length == 0) return;
+        for (String name : journals) {
+            LocalDate date = dateOf(name);
+            if (date != null && exists(binaryFileName(date))) {
+                throw new PersistenceException("Orders journal " + name + " is pending for a date already stored in "
+                        + binaryFileName(date) + ", it cannot be replayed onto the binary file");
+            }
+        }
+        new OrderDaoFileImpl(userIO, orderFolder).shutdown();
+    }
+
+    //null for names that are not an order file we understand
+    private static LocalDate dateOf(String fileName) {
+        if (fileName.length() < 15) return null;
+        try {
+            return LocalDate.parse(fileName.substring(7, 15), FILE_DATE);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized List<Order> getOrdersForDate(LocalDate date) throws PersistenceException {
+        return new ArrayList<>(load(date).values());
+    }
+
+    @Override
+    public synchronized Order getOrder(LocalDate date, int orderNumber) throws PersistenceException {
+        return load(date).get(orderNumber);
+    }
+
+    @Override
+    public synchronized Order getOrder(int orderNumber) throws PersistenceException {
+        LocalDate date = orderIndex.get(orderNumber);
+        if (date == null) {
+            // only the order number column of each binary file is read, walked because
+            // indexedDates also holds dates that were looked up but have no file
+            for (LocalDate unindexed : new ArrayList<>(knownDates)) {
+                if (indexedDates.contains(unindexed)) continue;
+                if (exists(binaryFileName(unindexed))) {
+                    indexedDates.add(unindexed);
+                    for (int number : BinaryOrderCodec.readOrderNumbers(readBinary(unindexed))) {
+                        orderIndex.put(number, unindexed);
+                    }
+                } else {
+                    load(unindexed);
+                }
+            }
+            date = orderIndex.get(orderNumber);
+        }
+        return date == null ? null : load(date).get(orderNumber);
+    }
+
+    @Override
+    public synchronized Order addOrder(LocalDate date, Order order) throws PersistenceException {
+        load(date).put(order.getOrderNumber(), order);
+        orderIndex.put(order.getOrderNumber(), date);
+        lastAllocated.accumulateAndGet(order.getOrderNumber(), Math::max);
+        writeBinary(date);
+        if (order.getOrderNumber() > highWaterMark) {
+            highWaterMark = order.getOrderNumber();
+            writeHighWaterMark();
+        }
+        return order;
+    }
+
+    @Override
+    public synchronized void addOrders(LocalDate date, Collection<Order> orders) throws PersistenceException {
+        if (orders.isEmpty()) return;
+        Map<Integer, Order> dayOrders = load(date);
+        int highest = 0;
+        for (Order order : orders) {
+            dayOrders.put(order.getOrderNumber(), order);
+            orderIndex.put(order.getOrderNumber(), date);
+            highest = Math.max(highest, order.getOrderNumber());
+        }
+        lastAllocated.accumulateAndGet(highest, Math::max);
+        writeBinary(date);
+        if (highest > highWaterMark) {
+            highWaterMark = highest;
+            writeHighWaterMark();
+        }
+    }
+
+    //every writer takes the same monitor, so the date cannot change between the read and the write
+    @Override
+    public synchronized List<Order> computeOnDate(LocalDate date, UnaryOperator<List<Order>> update) throws PersistenceException {
+        return OrderDao.super.computeOnDate(date, update);
+    }
+
+    @Override
+    public synchronized Order removeOrder(LocalDate date, int orderNumber) throws PersistenceException {
+        Order removed = load(date).remove(orderNumber);
+        if (removed != null) {
+            orderIndex.remove(orderNumber, date);
+            writeBinary(date);
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized Order updateOrder(LocalDate date, Order order) throws PersistenceException {
+        Map<Integer, Order> orders = load(date);
+        if (!orders.containsKey(order.getOrderNumber())) return null;
+        Order previous = orders.put(order.getOrderNumber(), order);
+        writeBinary(date);
+        return previous;
+    }
+
+    @Override
+    public synchronized void saveAllOrders() throws PersistenceException {
+        // every change is already written, only text-only dates are left to migrate
+        for (LocalDate date : new ArrayList<>(knownDates)) {
+            if (!exists(binaryFileName(date))) convertToBinary(date);
+        }
+    }
+
+    @Override
+    public synchronized List<Order> getAllOrders() throws PersistenceException {
+        List<Order> all = new ArrayList<>();
+        for (LocalDate date : new ArrayList<>(knownDates)) {
+            all.addAll(load(date).values());
+        }
+        return all;
+    }
+
+    @Override
+    public synchronized List<LocalDate> getOrderDates() {
+        List<LocalDate> dates = new ArrayList<>(knownDates);
+        Collections.sort(dates);
+        return dates;
+    }
+
+    //binary days not already in memory are decoded straight from their file without being cached
+    @Override
+    public synchronized List<Order> readOrdersForDate(LocalDate date) throws PersistenceException {
+        Map<Integer, Order> cached = ordersByDate.get(date);
+        if (cached != null || !exists(binaryFileName(date))) return new ArrayList<>(load(date).values());
+        return BinaryOrderCodec.decode(readBinary(date), date);
+    }
+
+    //every change is written immediately, so the files on disk always describe the date
+    @Override
+    public synchronized String getDateStamp(LocalDate date) throws PersistenceException {
+        try {
+            return userIO.fileStamp(binaryFileName(date)) + "|" + userIO.fileStamp(textFileName(date));
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read orders file for date " + date, e);
+        }
+    }
+
+    @Override
+    public int getNextOrderNumber() {
+        return lastAllocated.incrementAndGet();
+    }
+
+    @Override
+    public int allocateOrderNumbers(int count) {
+        return lastAllocated.getAndAdd(count) + 1;
+    }
+
+    /**
+     * Sums one money or area column for a day without building Order objects.
+     * Text-only dates are converted to binary first.
+     */
+    public synchronized BigDecimal sumColumn(LocalDate date, BinaryOrderCodec.Column column) throws PersistenceException {
+        if (!exists(binaryFileName(date))) {
+            if (!exists(textFileName(date))) return BigDecimal.ZERO;
+            convertToBinary(date);
+        }
+        return BinaryOrderCodec.sumColumn(readBinary(date), column);
+    }
+
+    //rewrites a day's text file as binary, the text file is removed once the binary is in place
+    public synchronized void convertToBinary(LocalDate date) throws PersistenceException {
+        ordersByDate.remove(date);
+        load(date);
+        writeBinary(date);
+    }
+
+    //writes a day's binary file back out as Orders_MMddyyyy.txt, leaving the binary file in place
+    public synchronized void convertToText(LocalDate date) throws PersistenceException {
+        Map<Integer, Order> orders = load(date);
+        if (orders.isEmpty()) return;
+        try {
+            userIO.writeLines(textFileName(date), OrderFileWriter.toLines(orders.values()));
+        } catch (IOException e) {
+            throw new PersistenceException("Could not write orders text file for date " + date, e);
+        }
+    }
+
+    private Map<Integer, Order> load(LocalDate date) throws PersistenceException {
+        Map<Integer, Order> orders = ordersByDate.get(date);
+        if (orders != null) return orders;
+
+        orders = new HashMap<>();
+        if (exists(binaryFileName(date))) {
+            // one bulk read, no text parsing
+            for (Order order : BinaryOrderCodec.decode(readBinary(date), date)) {
+                orders.put(order.getOrderNumber(), order);
+            }
+        } else if (exists(textFileName(date))) {
+            Map<Integer, Order> fromText = orders;
+            try (Reader in = userIO.newReader(textFileName(date))) {
+                textReader.read(in, date, order -> fromText.put(order.getOrderNumber(), order));
+            } catch (IOException e) {
+                throw new PersistenceException("Could not read orders file for date " + date, e);
+            }
+        }
+        ordersByDate.put(date, orders);
+        indexedDates.add(date);
+        for (Integer number : orders.keySet()) {
+            orderIndex.put(number, date);
+        }
+        return orders;
+    }
+
+    private byte[] readBinary(LocalDate date) throws PersistenceException {
+        try {
+            return userIO.readAllBytes(binaryFileName(date));
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read binary orders file for date " + date, e);
+        }
+    }
+
+    private void writeBinary(LocalDate date) throws PersistenceException {
+        Map<Integer, Order> orders = ordersByDate.get(date);
+        try {
+            if (orders == null || orders.isEmpty()) {
+                userIO.deleteIfExists(binaryFileName(date));
+                knownDates.remove(date);
+            } else {
+                userIO.writeBytes(binaryFileName(date), BinaryOrderCodec.encode(orders.values()));
+                knownDates.add(date);
+            }
+            // the binary file is now the source of truth for this date
+            userIO.deleteIfExists(textFileName(date));
+        } catch (IllegalArgumentException e) {
+            throw new PersistenceException("Could not encode orders for date " + date + ": " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new PersistenceException("Could not write binary orders file for date " + date, e);
+        }
+    }
+
+    /**
+     * Reads the shared high-water mark. Files written, restored or edited while the app was down differ
+     * from OrderFiles.manifest, the same check the text DAO makes, so their order numbers can only raise it.
+     * A missing or unreadable mark is rebuilt from the order number column of every file.
+     */
+    private void loadHighWaterMark() throws PersistenceException {
+        try {
+            int stored = -1;
+            List<String> lines = userIO.readAllLines(highWaterMarkFile);
+            if (lines.size() > 1) {
+                try {
+                    stored = Integer.parseInt(lines.get(1).trim());
+                } catch (NumberFormatException ignored) {
+                    // rebuilt from the order files below
+                }
+            }
+
+            fileManifest = new OrderFileManifest(userIO, orderFolder);
+            Set<LocalDate> changed = new TreeSet<>();
+            if (stored < 0) {
+                changed.addAll(knownDates);
+            } else {
+                for (String name : fileManifest.changedFiles()) {
+                    LocalDate date = dateOf(name);
+                    if (date != null && knownDates.contains(date)) changed.add(date);
+                }
+            }
+            int max = Math.max(stored, 0);
+            for (LocalDate date : changed) {
+                if (exists(binaryFileName(date))) {
+                    for (int number : BinaryOrderCodec.readOrderNumbers(readBinary(date))) {
+                        max = Math.max(max, number);
+                    }
+                } else {
+                    for (Order order : load(date).values()) {
+                        max = Math.max(max, order.getOrderNumber());
+                    }
+                }
+            }
+            highWaterMark = max;
+            if (max != stored) writeHighWaterMark();
+            fileManifest.save();
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read order number file " + highWaterMarkFile, e);
+        }
+    }
+
+    //every change is already written, the manifest lets the next start skip the files it covers
+    @PreDestroy
+    public synchronized void shutdown() throws PersistenceException {
+        try {
+            fileManifest.save();
+        } catch (IOException e) {
+            throw new PersistenceException("Could not write order file manifest in " + orderFolder, e);
+        }
+    }
+
+    private void writeHighWaterMark() throws PersistenceException {
+        try {
+            userIO.writeLines(highWaterMarkFile, List.of("HighestOrderNumber", String.valueOf(highWaterMark)));
+        } catch (IOException e) {
+            throw new PersistenceException("Could not write order number file " + highWaterMarkFile, e);
+        }
+    }
+
+    private boolean exists(String fileName) throws PersistenceException {
+        try {
+            return userIO.exists(fileName);
+        } catch (IOException e) {
+            throw new PersistenceException("Could not check for orders file " + fileName, e);
+        }
+    }
+
+    private String binaryFileName(LocalDate date) {
+        return orderFolder + "Orders_" + date.format(FILE_DATE) + ".bin";
+    }
+
+    private String textFileName(LocalDate date) {
+        return orderFolder + "Orders_" + date.format(FILE_DATE) + ".txt";
+    }
+}
@@ -2,284 +2,931 @@ package com.flooring.flooringmastery.dao;
 
 import com.flooring.flooringmastery.model.Order;
 import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.metrics.Metrics;
 import com.flooring.flooringmastery.view.UserIO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Text-file OrderDao, safe to share between threads.
+ * Reads go straight to concurrent maps without locking. Loading, changing or writing a date
+ * happens under that date's own lock, so writers to different days never wait on each other.
+ * With flooring.orders.watch on, files changed in FileData/Orders by other tools are picked up
+ * without a restart: only the dates whose files changed are reloaded.
+ */
 @Repository
+@Profile("!binary & !sql")
 public class OrderDaoFileImpl implements OrderDao {
 
-    private static final String ORDER_FOLDER = "FileData/Orders/";
+    private static final Logger LOG = LoggerFactory.getLogger(OrderDaoFileImpl.class);
+
+    private static final String DEFAULT_ORDER_FOLDER = "FileData/Orders/";
     private static final String DELIMITER = ",";
     private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("MMddyyyy");
 
-    private final Map<LocalDate, Map<Integer, Order>> ordersByDate = new HashMap<>();
+    private static final String HIGH_WATER_MARK_NAME = "OrderNumber.txt";
+    //journal records are the order line prefixed with ADD, or REMOVE,<orderNumber>
+    private static final String JOURNAL_ADD = "ADD";
+    private static final String JOURNAL_REMOVE = "REMOVE";
+    //a date's journal is folded back into its csv once it holds this many records
+    private static final int JOURNAL_COMPACT_THRESHOLD = 500;
+
+    private static final Metrics.Timer LOAD_TIMER = Metrics.timer("orders.load-date");
+    private static final Metrics.Timer WRITE_TIMER = Metrics.timer("orders.write-date");
+    private static final Metrics.Timer GET_ALL_TIMER = Metrics.timer("orders.get-all");
+    private static final Metrics.Counter CACHE_HITS = Metrics.counter("orders.cache.hits");
+    private static final Metrics.Counter CACHE_MISSES = Metrics.counter("orders.cache.misses");
+    private static final Metrics.Counter ROWS_PARSED = Metrics.counter("orders.rows-parsed");
+    private static final Metrics.Counter BYTES_READ = Metrics.counter("orders.bytes-read");
+    private static final Metrics.Counter BYTES_WRITTEN = Metrics.counter("orders.bytes-written");
+    private static final Metrics.Counter FLUSH_FAILURES = Metrics.counter("orders.flush-failures");
+
+    private final Map<LocalDate, Map<Integer, Order>> ordersByDate = new ConcurrentHashMap<>();
+    //one lock per date, held while a date is loaded, changed or written
+    private final Map<LocalDate, ReentrantLock> dateLocks = new ConcurrentHashMap<>();
+    //manifest of order files on disk, built at startup without parsing any of them
+    private final Map<LocalDate, String> orderFiles = new ConcurrentHashMap<>();
+    //number of journal records waiting to be compacted per date
+    private final Map<LocalDate, Integer> journalSizes = new ConcurrentHashMap<>();
+    //dates changed in memory but not yet written, only used in write-behind mode
+    private final Set<LocalDate> dirtyDates = ConcurrentHashMap.newKeySet();
+    //told after a reload, so totals kept elsewhere can catch up with files changed by other tools
+    private final List<Runnable> externalChangeListeners = new CopyOnWriteArrayList<>();
     private final UserIO userIO;
+    private final String orderFolder;
+    //spilled sort runs go next to the orders folder, FileData/Sort by default
+    private final String sortFolder;
+    private final String highWaterMarkFile;
+    //stamps of the order files the high-water mark is known to cover
+    private OrderFileManifest fileManifest;
+    //one reader per thread so its buffer is allocated once and never shared
+    private final ThreadLocal<OrderFileReader> fileReader = ThreadLocal.withInitial(OrderFileReader::new);
+    private final AtomicInteger malformedRows = new AtomicInteger();
+    private final boolean journaled;
+    private final boolean writeBehind;
+    private final int flushThreshold;
+    //orders a day's file may hold in memory during forEachOrder before the rest is sorted on disk
+    private final int sortRunSize;
+    private ScheduledExecutorService flusher;
+    private final AtomicInteger pendingChanges = new AtomicInteger();
+    //guards the high-water mark and its file, always taken after a date lock, never before
+    private final Object highWaterMarkLock = new Object();
+    private int highWaterMark;
+    private boolean highWaterMarkDirty;
+    //last number handed out by getNextOrderNumber, so concurrent creates never share one
+    private final AtomicInteger lastAllocated = new AtomicInteger();
+    //order number -> date for every indexed date, lets getOrder(int) skip scanning dates
+    private final Map<Integer, LocalDate> orderIndex = new ConcurrentHashMap<>();
+    private final Set<LocalDate> indexedDates = ConcurrentHashMap.newKeySet();
+    //numbers indexed for dates that were scanned but not loaded, so a reload can drop exactly those keys
+    private final Map<LocalDate, Set<Integer>> scannedNumbers = new ConcurrentHashMap<>();
+    //reports dates changed on disk by other tools, null when watching is off
+    private OrderFileWatcher watcher;
 
     public OrderDaoFileImpl(UserIO userIO) {
+        this(userIO, false);
+    }
+
+    public OrderDaoFileImpl(UserIO userIO, String orderFolder) {
+        this(userIO, orderFolder, false, false, 0, 0, false, 0, 50_000);
+    }
+
+    public OrderDaoFileImpl(UserIO userIO, boolean journaled) {
+        this(userIO, journaled, false, 0, 0);
+    }
+
+    public OrderDaoFileImpl(UserIO userIO, boolean journaled, boolean writeBehind,
+                            long flushIntervalMillis, int flushThreshold) {
+        this(userIO, journaled, writeBehind, flushIntervalMillis, flushThreshold, false, 0);
+    }
+
+    public OrderDaoFileImpl(UserIO userIO, boolean journaled, boolean writeBehind, long flushIntervalMillis,
+                            int flushThreshold, boolean watch, long watchDebounceMillis) {
+        this(userIO, journaled, writeBehind, flushIntervalMillis, flushThreshold, watch, watchDebounceMillis, 50_000);
+    }
+
+    public OrderDaoFileImpl(UserIO userIO, boolean journaled, boolean writeBehind, long flushIntervalMillis,
+                            int flushThreshold, boolean watch, long watchDebounceMillis, int sortRunSize) {
+        this(userIO, DEFAULT_ORDER_FOLDER, journaled, writeBehind, flushIntervalMillis, flushThreshold, watch,
+                watchDebounceMillis, sortRunSize);
+    }
+
+    @Autowired
+    public OrderDaoFileImpl(UserIO userIO,
+                            @Value("${flooring.orders.folder:FileData/Orders/}") String orderFolder,
+                            @Value("${flooring.orders.journaled:false}") boolean journaled,
+                            @Value("${flooring.orders.write-behind:false}") boolean writeBehind,
+                            @Value("${flooring.orders.flush-interval-ms:5000}") long flushIntervalMillis,
+                            @Value("${flooring.orders.flush-threshold:1000}") int flushThreshold,
+                            @Value("${flooring.orders.watch:false}") boolean watch,
+                            @Value("${flooring.orders.watch-debounce-ms:250}") long watchDebounceMillis,
+                            @Value("${flooring.orders.sort-run-size:50000}") int sortRunSize) {
         this.userIO = userIO;
+        this.orderFolder = orderFolder.endsWith("/") ? orderFolder : orderFolder + "/";
+        this.sortFolder = Paths.get(this.orderFolder).resolveSibling("Sort") + "/";
+        this.highWaterMarkFile = this.orderFolder + HIGH_WATER_MARK_NAME;
+        this.sortRunSize = sortRunSize;
+        this.journaled = journaled;
+        this.writeBehind = writeBehind;
+        this.flushThreshold = flushThreshold;
         try{
             // ensure directory exists
-            this.userIO.createDirectories(ORDER_FOLDER);
-            loadAllOrders();
+            this.userIO.createDirectories(this.orderFolder);
+            buildManifest();
+            loadHighWaterMark();
+            lastAllocated.set(highWaterMark);
         } catch (PersistenceException e) {
             throw new RuntimeException(e);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+
+        if (writeBehind && flushIntervalMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "order-write-behind");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        if (watch) {
+            try {
+                watcher = new OrderFileWatcher(Paths.get(this.orderFolder), watchDebounceMillis, this::reloadQuietly);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
-    private void loadAllOrders() throws  PersistenceException {
-        File folder = new File(ORDER_FOLDER);
+
+    //only records which dates have a file, orders are parsed on first access in loadOrdersForDate
+    //journals left by an earlier run are sized too, so saveAllOrders compacts them even if their date is never read
+    private void buildManifest() throws IOException {
+        File folder = new File(orderFolder);
         if (!folder.exists()) {
             folder.mkdirs(); // create folder if missing
         }
 
-        File[] files = folder.listFiles((dir, name) -> name.startsWith("Orders_") && name.endsWith(".txt"));
+        File[] files = folder.listFiles((dir, name) -> name.startsWith("Orders_")
+                && (name.endsWith(".txt") || name.endsWith(".journal")));
         if (files == null) return;
 
         for (File file : files) {
             LocalDate date = getDateFromFileName(file.getName());
-            loadOrdersForDate(date);
+            if (date == null) continue;
+            orderFiles.put(date, orderFileName(date));
+            if (file.getName().endsWith(".journal")) recordJournalSize(date);
         }
     }
+
     @Override
     public List<Order> getOrdersForDate(LocalDate date) throws PersistenceException {
-        loadOrdersForDate(date);
-        Map<Integer, Order> orders = ordersByDate.get(date);
-        return orders == null ? new ArrayList<>() : new ArrayList<>(orders.values());
+        return new ArrayList<>(ordersFor(date).values());
     }
 
     @Override
     public Order getOrder(LocalDate date, int orderNumber) throws PersistenceException {
-        loadOrdersForDate(date);
+        return ordersFor(date).get(orderNumber);
+    }
+
+    @Override
+    public Order getOrder(int orderNumber) throws PersistenceException {
+        LocalDate date = orderIndex.get(orderNumber);
+        if (date == null) {
+            // a miss indexes every order file not indexed yet from its order number column, later lookups are O(1)
+            // the set also holds dates without a file, so it is walked rather than compared by size
+            for (LocalDate unindexed : new ArrayList<>(orderFiles.keySet())) {
+                if (indexedDates.contains(unindexed)) continue;
+                ReentrantLock lock = lockFor(unindexed);
+                lock.lock();
+                try {
+                    indexDate(unindexed, scanOrderNumbers(unindexed));
+                } finally {
+                    lock.unlock();
+                }
+            }
+            date = orderIndex.get(orderNumber);
+        }
+        return date == null ? null : getOrder(date, orderNumber);
+    }
+
+    //a date's orders, loading them under the date lock the first time they are asked for
+    private Map<Integer, Order> ordersFor(LocalDate date) throws PersistenceException {
         Map<Integer, Order> orders = ordersByDate.get(date);
-        return orders != null ? orders.get(orderNumber) : null;
+        if (orders != null) {
+            CACHE_HITS.increment();
+            return orders;
+        }
+
+        CACHE_MISSES.increment();
+        ReentrantLock lock = lockFor(date);
+        lock.lock();
+        try {
+            loadOrdersForDate(date);
+            return ordersByDate.get(date);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(LocalDate date) {
+        return dateLocks.computeIfAbsent(date, d -> new ReentrantLock());
     }
 
     @Override
     public Order addOrder(LocalDate date, Order order) throws PersistenceException {
-        loadOrdersForDate(date);
+        ReentrantLock lock = lockFor(date);
+        lock.lock();
+        try {
+            loadOrdersForDate(date);
 
-        //If new Date store as new entry in Hashmap so it is easy to create new order files for each day
-        ordersByDate.computeIfAbsent(date, k -> new HashMap<>()).put(order.getOrderNumber(), order);
-        writeOrdersForDate(date);
+            //If new Date store as new entry in Hashmap so it is easy to create new order files for each day
+            ordersByDate.get(date).put(order.getOrderNumber(), order);
+            orderIndex.put(order.getOrderNumber(), date);
+            lastAllocated.accumulateAndGet(order.getOrderNumber(), Math::max);
+            persistChange(date, JOURNAL_ADD + DELIMITER + OrderFileWriter.toLine(order));
+        } finally {
+            lock.unlock();
+        }
+
+        raiseHighWaterMark(order.getOrderNumber());
+        flushIfOverThreshold();
         return order;
     }
 
+    //one load, one journal append or file write and one high-water mark update for the whole batch
     @Override
-    public Order removeOrder(LocalDate date, int orderNumber) throws PersistenceException {
+    public void addOrders(LocalDate date, Collection<Order> orders) throws PersistenceException {
+        if (orders.isEmpty()) return;
+        int highest;
+        ReentrantLock lock = lockFor(date);
+        lock.lock();
+        try {
+            highest = storeOrders(date, orders);
+        } finally {
+            lock.unlock();
+        }
+
+        raiseHighWaterMark(highest);
+        flushIfOverThreshold();
+    }
+
+    //the read, the update and the write all happen under the date lock
+    @Override
+    public List<Order> computeOnDate(LocalDate date, UnaryOperator<List<Order>> update) throws PersistenceException {
+        List<Order> changed;
+        int highest;
+        ReentrantLock lock = lockFor(date);
+        lock.lock();
+        try {
+            Map<Integer, Order> cached = ordersByDate.get(date);
+            Map<Integer, Order> read = cached != null ? cached : readFromDisk(date);
+            changed = update.apply(new ArrayList<>(read.values()));
+            if (changed.isEmpty()) return changed;
+            // a date read only for this call becomes the loaded date, so storing does not parse it again
+            if (cached == null) cacheOrders(date, read);
+            highest = storeOrders(date, changed);
+        } finally {
+            lock.unlock();
+        }
+
+        raiseHighWaterMark(highest);
+        flushIfOverThreshold();
+        return changed;
+    }
+
+    //caller holds the date lock, returns the highest order number stored
+    private int storeOrders(LocalDate date, Collection<Order> orders) throws PersistenceException {
         loadOrdersForDate(date);
-        Map<Integer, Order> orders = ordersByDate.get(date);
-        Order removedOrder = null;
-        if (orders != null) {
-            removedOrder = orders.remove(orderNumber);
-            writeOrdersForDate(date);
+        Map<Integer, Order> dayOrders = ordersByDate.get(date);
+        List<String> records = new ArrayList<>(orders.size());
+        int highest = 0;
+        for (Order order : orders) {
+            dayOrders.put(order.getOrderNumber(), order);
+            orderIndex.put(order.getOrderNumber(), date);
+            records.add(JOURNAL_ADD + DELIMITER + OrderFileWriter.toLine(order));
+            highest = Math.max(highest, order.getOrderNumber());
+        }
+        lastAllocated.accumulateAndGet(highest, Math::max);
+        persistChanges(date, records);
+        return highest;
+    }
+
+    @Override
+    public Order removeOrder(LocalDate date, int orderNumber) throws PersistenceException {
+        Order removedOrder;
+        ReentrantLock lock = lockFor(date);
+        lock.lock();
+        try {
+            loadOrdersForDate(date);
+            removedOrder = ordersByDate.get(date).remove(orderNumber);
+            if (removedOrder != null) {
+                orderIndex.remove(orderNumber, date);
+                persistChange(date, JOURNAL_REMOVE + DELIMITER + orderNumber);
+            }
+        } finally {
+            lock.unlock();
         }
+        flushIfOverThreshold();
         return removedOrder;
     }
 
     @Override
-    public void saveAllOrders() throws PersistenceException {
-        for (LocalDate date : ordersByDate.keySet()) {
+    public Order updateOrder(LocalDate date, Order order) throws PersistenceException {
+        Order previous;
+        ReentrantLock lock = lockFor(date);
+        lock.lock();
+        try {
+            loadOrdersForDate(date);
+            Map<Integer, Order> orders = ordersByDate.get(date);
+            if (!orders.containsKey(order.getOrderNumber())) {
+                return null;
+            }
+
+            //swap in place so the order never disappears, then persist with a single write
+            previous = orders.put(order.getOrderNumber(), order);
+            persistChange(date, JOURNAL_ADD + DELIMITER + OrderFileWriter.toLine(order));
+        } finally {
+            lock.unlock();
+        }
+        flushIfOverThreshold();
+        return previous;
+    }
+
+    //written now unless write-behind defers it to the next flush
+    private void raiseHighWaterMark(int highest) throws PersistenceException {
+        synchronized (highWaterMarkLock) {
+            if (highest > highWaterMark) {
+                highWaterMark = highest;
+                highWaterMarkDirty = true;
+            }
+            if (highWaterMarkDirty && !writeBehind) writeHighWaterMark();
+        }
+    }
+
+    //saves one mutation of a date, caller holds the date lock
+    //deferred in write-behind mode, appended when journaled, otherwise rewritten now
+    private void persistChange(LocalDate date, String journalRecord) throws PersistenceException {
+        persistChanges(date, List.of(journalRecord));
+    }
+
+    private void persistChanges(LocalDate date, List<String> journalRecords) throws PersistenceException {
+        if (writeBehind) {
+            //repeated changes to the same date coalesce into one write
+            dirtyDates.add(date);
+            orderFiles.put(date, orderFileName(date));
+            pendingChanges.addAndGet(journalRecords.size());
+        } else if (journaled) {
+            appendJournal(date, journalRecords);
+        } else {
             writeOrdersForDate(date);
         }
     }
 
-    //loads orders for a specific date from file into the ordersByDate map
-    private void loadOrdersForDate(LocalDate date) throws PersistenceException {
-        if (ordersByDate.containsKey(date)) return;
+    //size-triggered write-behind flush, only called with no date lock held so locks are never taken out of order
+    private void flushIfOverThreshold() throws PersistenceException {
+        if (writeBehind && flushThreshold > 0 && pendingChanges.get() >= flushThreshold) {
+            flushDirtyDates();
+        }
+    }
 
-        String fileName = ORDER_FOLDER + "Orders_" + date.format(FILE_DATE) + ".txt";
+    @Override
+    public void saveAllOrders() throws PersistenceException {
+        //only dates that changed since their last write are rewritten
+        flushDirtyDates();
+        //dates with pending journal records need their csv rewritten too
+        for (LocalDate date : new ArrayList<>(journalSizes.keySet())) {
+            ReentrantLock lock = lockFor(date);
+            lock.lock();
+            try {
+                if (journalSizes.containsKey(date)) compactJournal(date);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    //writes every dirty date once, plus the high-water mark if it moved; a date that fails stays dirty
+    //and the first failure is thrown once the other dates have had their turn
+    private void flushDirtyDates() throws PersistenceException {
+        pendingChanges.set(0);
+        PersistenceException failure = null;
+        for (LocalDate date : new ArrayList<>(dirtyDates)) {
+            ReentrantLock lock = lockFor(date);
+            lock.lock();
+            try {
+                //cleared before writing so a change made during a failed write is not lost
+                if (dirtyDates.remove(date)) {
+                    try {
+                        writeOrdersForDate(date);
+                    } catch (PersistenceException e) {
+                        dirtyDates.add(date);
+                        if (failure == null) failure = e;
+                        else failure.addSuppressed(e);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        synchronized (highWaterMarkLock) {
+            if (highWaterMarkDirty) writeHighWaterMark();
+        }
+        if (failure != null) throw failure;
+    }
+
+    //scheduled flush, errors are retried on the next tick since the dates stay dirty
+    private void flushQuietly() {
+        try {
+            flushDirtyDates();
+        } catch (PersistenceException e) {
+            FLUSH_FAILURES.increment();
+            LOG.error("Write-behind flush failed, the dates stay dirty for the next flush or saveAllOrders", e);
+        }
+    }
 
+    //flush pending changes and fold outstanding journals into the csv files when the application shuts down
+    @PreDestroy
+    public void shutdown() throws PersistenceException {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException ignored) {
+                // nothing left to watch
+            }
+        }
+        if (flusher != null) flusher.shutdown();
+        saveAllOrders();
+        // everything is written and the mark covers it, the next start only scans what changes meanwhile
         try {
-            if (!userIO.exists(fileName)) {
-                ordersByDate.put(date, new HashMap<>());
+            fileManifest.save();
+        } catch (IOException e) {
+            throw new PersistenceException("Could not write order file manifest in " + orderFolder, e);
+        }
+    }
+
+    /**
+     * Drops what is cached for a date and reads it again from disk, for files changed by other tools.
+     * Dates that were never loaded are only re-indexed. A date with unsaved write-behind changes is
+     * left alone, its next flush overwrites the file. External change listeners run once the date is
+     * reloaded, outside its lock.
+     */
+    public void reloadOrdersForDate(LocalDate date) throws PersistenceException {
+        ReentrantLock lock = lockFor(date);
+        lock.lock();
+        try {
+            if (dirtyDates.contains(date)) {
+                LOG.warn("Orders for {} changed on disk but have unsaved changes, keeping them", date);
                 return;
             }
+            Map<Integer, Order> previous = ordersByDate.remove(date);
+            boolean wasLoaded = previous != null;
+            Set<Integer> previousNumbers = wasLoaded ? previous.keySet() : scannedNumbers.remove(date);
+            if (previousNumbers != null) {
+                for (Integer number : previousNumbers) orderIndex.remove(number, date);
+            }
+            indexedDates.remove(date);
+            journalSizes.remove(date);
+            // a date that is only scanned below still needs its journal compacted later
+            recordJournalSize(date);
+
+            Set<Integer> numbers;
+            if (wasLoaded) {
+                loadOrdersForDate(date);
+                numbers = ordersByDate.get(date).keySet();
+            } else {
+                numbers = scanOrderNumbers(date);
+                indexDate(date, numbers);
+            }
+            if (numbers.isEmpty()) orderFiles.remove(date);
+            else orderFiles.put(date, orderFileName(date));
+
+            // numbers written by other tools must never be handed out again, not even after a restart
+            int highest = numbers.isEmpty() ? 0 : Collections.max(numbers);
+            lastAllocated.accumulateAndGet(highest, Math::max);
+            raiseHighWaterMark(highest);
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read orders journal for date " + date, e);
+        } finally {
+            lock.unlock();
+        }
+        externalChangeListeners.forEach(Runnable::run);
+    }
 
-            List<String> lines = userIO.readAllLines(fileName);
-            if (!lines.isEmpty()) lines.remove(0); // remove header
+    @Override
+    public void addExternalChangeListener(Runnable listener) {
+        externalChangeListeners.add(listener);
+    }
 
-            Map<Integer, Order> orders = new HashMap<>();
-            for (String line : lines) {
-                String[] t = line.split(DELIMITER, -1);
+    private void reloadQuietly(LocalDate date) {
+        try {
+            reloadOrdersForDate(date);
+        } catch (PersistenceException e) {
+            LOG.error("Could not reload orders for {}", date, e);
+        }
+    }
 
-                Order order = new Order();
-                // order number (required) - if missing, skip this line
-                if (t.length > 0 && t[0] != null && !t[0].isEmpty()) {
-                    try {
-                        order.setOrderNumber(Integer.parseInt(t[0]));
-                    } catch (NumberFormatException e) {
-                        // skip malformed order number
-                        continue;
-                    }
-                } else {
-                    continue; // cannot identify order without number
-                }
+    //loads orders for a specific date from file into the ordersByDate map, caller holds the date lock
+    private void loadOrdersForDate(LocalDate date) throws PersistenceException {
+        if (ordersByDate.containsKey(date)) return;
 
-                // set the order date from the file being read
-                order.setOrderDate(date);
+        long start = System.nanoTime();
+        cacheOrders(date, readFromDisk(date));
+        LOAD_TIMER.stop(start);
+    }
 
-                // optional fields - set if present
-                if (t.length > 1 && t[1] != null && !t[1].isEmpty()) order.setCustomerName(t[1]);
-                if (t.length > 2 && t[2] != null && !t[2].isEmpty()) order.setState(t[2]);
-                if (t.length > 3 && t[3] != null && !t[3].isEmpty()) {
-                    try { order.setTaxRate(new BigDecimal(t[3])); } catch (NumberFormatException ignored) {}
-                }
-                if (t.length > 4 && t[4] != null && !t[4].isEmpty()) order.setProductType(t[4]);
-                if (t.length > 5 && t[5] != null && !t[5].isEmpty()) {
-                    try { order.setArea(new BigDecimal(t[5])); } catch (NumberFormatException ignored) {}
-                }
-                if (t.length > 6 && t[6] != null && !t[6].isEmpty()) {
-                    try { order.setCostPerSquareFoot(new BigDecimal(t[6])); } catch (NumberFormatException ignored) {}
-                }
-                if (t.length > 7 && t[7] != null && !t[7].isEmpty()) {
-                    try { order.setLaborCostPerSquareFoot(new BigDecimal(t[7])); } catch (NumberFormatException ignored) {}
-                }
-                if (t.length > 8 && t[8] != null && !t[8].isEmpty()) {
-                    try { order.setMaterialCost(new BigDecimal(t[8])); } catch (NumberFormatException ignored) {}
-                }
-                if (t.length > 9 && t[9] != null && !t[9].isEmpty()) {
-                    try { order.setLaborCost(new BigDecimal(t[9])); } catch (NumberFormatException ignored) {}
-                }
-                if (t.length > 10 && t[10] != null && !t[10].isEmpty()) {
-                    try { order.setTax(new BigDecimal(t[10])); } catch (NumberFormatException ignored) {}
+    //makes orders read from disk the cached orders of the date, caller holds the date lock
+    private void cacheOrders(LocalDate date, Map<Integer, Order> orders) {
+        ordersByDate.put(date, orders);
+        // the loaded map now says which numbers the date holds
+        scannedNumbers.remove(date);
+        indexDate(date, orders.keySet());
+        if (!orders.isEmpty()) orderFiles.put(date, orderFileName(date));
+    }
+
+    //parses a date's csv and replays its journal, caller holds the date lock
+    private Map<Integer, Order> readFromDisk(LocalDate date) throws PersistenceException {
+        String fileName = orderFileName(date);
+
+        try {
+            Map<Integer, Order> orders = new ConcurrentHashMap<>();
+            if (userIO.exists(fileName)) {
+                OrderFileReader reader = fileReader.get();
+                try (CountingReader in = new CountingReader(userIO.newReader(fileName))) {
+                    reader.read(in, date, order -> orders.put(order.getOrderNumber(), order));
+                    BYTES_READ.add(in.getCount());
                 }
-                if (t.length > 11 && t[11] != null && !t[11].isEmpty()) {
-                    try { order.setTotal(new BigDecimal(t[11])); } catch (NumberFormatException ignored) {}
+                ROWS_PARSED.add(reader.getRowsParsed());
+                if (reader.getMalformedRows() > 0) {
+                    malformedRows.addAndGet(reader.getMalformedRows());
+                    LOG.warn("{} malformed row(s) in {} at line(s) {}", reader.getMalformedRows(), fileName,
+                            reader.getMalformedLines());
                 }
-
-                orders.put(order.getOrderNumber(), order);
             }
 
-            ordersByDate.put(date, orders);
+            // replayed even when not journaling so switching modes never loses records
+            replayJournal(date, orders);
+            return orders;
         } catch (IOException e) {
             throw new PersistenceException("Could not read orders file for date " + date, e);
         }
     }
+
+    //applies the journal on top of the csv contents, later records win
+    private void replayJournal(LocalDate date, Map<Integer, Order> orders) throws IOException {
+        String journalName = journalFileName(date);
+        if (!userIO.exists(journalName)) return;
+
+        List<String> records = userIO.readAllLines(journalName);
+        for (String record : records) {
+            int comma = record.indexOf(DELIMITER);
+            if (comma == -1) continue;
+            String type = record.substring(0, comma);
+            String rest = record.substring(comma + 1);
+
+            if (JOURNAL_ADD.equals(type)) {
+                Order order = fileReader.get().parseLine(rest, date);
+                if (order != null) orders.put(order.getOrderNumber(), order);
+            } else if (JOURNAL_REMOVE.equals(type)) {
+                try {
+                    orders.remove(Integer.parseInt(rest.trim()));
+                } catch (NumberFormatException ignored) {
+                    // skip malformed record
+                }
+            }
+        }
+        journalSizes.put(date, records.size());
+    }
+
+    //counts the records in a date's journal file, if it has one, without replaying them
+    private void recordJournalSize(LocalDate date) throws IOException {
+        String journalName = journalFileName(date);
+        if (userIO.exists(journalName)) journalSizes.put(date, userIO.readAllLines(journalName).size());
+    }
+
+    private void appendJournal(LocalDate date, List<String> records) throws PersistenceException {
+        try {
+            userIO.appendLines(journalFileName(date), records);
+            BYTES_WRITTEN.add(lineBytes(records));
+            if (watcher != null) watcher.recordOwnWrite(date);
+        } catch (IOException e) {
+            throw new PersistenceException("Could not append to orders journal for date " + date, e);
+        }
+        orderFiles.put(date, orderFileName(date));
+
+        int size = journalSizes.merge(date, records.size(), Integer::sum);
+        if (size >= JOURNAL_COMPACT_THRESHOLD) {
+            compactJournal(date);
+        }
+    }
+
+    //rewrites the canonical csv from memory, writeOrdersForDate then drops the journal it now contains
+    private void compactJournal(LocalDate date) throws PersistenceException {
+        loadOrdersForDate(date);
+        writeOrdersForDate(date);
+    }
+
+    private void deleteJournal(LocalDate date) throws PersistenceException {
+        if (journalSizes.remove(date) == null) return;
+        try {
+            userIO.deleteIfExists(journalFileName(date));
+        } catch (IOException e) {
+            throw new PersistenceException("Could not delete orders journal for date " + date, e);
+        }
+    }
+
+    //size of the lines once written, one byte per char in the ascii order files
+    private static long lineBytes(List<String> lines) {
+        long bytes = 0;
+        for (String line : lines) bytes += line.length() + 1;
+        return bytes;
+    }
+
+    private String orderFileName(LocalDate date) {
+        return orderFolder + "Orders_" + date.format(FILE_DATE) + ".txt";
+    }
+
+    private String journalFileName(LocalDate date) {
+        return orderFolder + "Orders_" + date.format(FILE_DATE) + ".journal";
+    }
+
     private LocalDate getDateFromFileName(String fileName) {
         // Example: "Orders_08212025.txt"
+        if (fileName.length() < 15) return null;
         String datePart = fileName.substring(7, 15); // MMDDYYYY
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMddyyyy");
-        return LocalDate.parse(datePart, formatter);
+        try {
+            return LocalDate.parse(datePart, FILE_DATE);
+        } catch (DateTimeParseException e) {
+            return null; // not an order file we understand
+        }
+    }
+
+    //total rows that could not be fully parsed since startup, details are reported as each file loads
+    public int getMalformedRowCount() {
+        return malformedRows.get();
     }
 
     @Override
-    //generate next order number by finding max across all dates
+    //numbers are handed out from a counter seeded by the persisted high-water mark, no order files need loading
     public int getNextOrderNumber() throws PersistenceException {
-        int maxOrderNumber = 0;
+        return lastAllocated.incrementAndGet();
+    }
 
-        for (Map<Integer, Order> ordersForDate : ordersByDate.values()) {
-            if (ordersForDate != null && !ordersForDate.isEmpty()) {
-                int localMax = Collections.max(ordersForDate.keySet());
-                if (localMax > maxOrderNumber) {
-                    maxOrderNumber = localMax;
+    @Override
+    public int allocateOrderNumbers(int count) {
+        return lastAllocated.getAndAdd(count) + 1;
+    }
+
+    private void indexDate(LocalDate date, Set<Integer> orderNumbers) {
+        if (!indexedDates.add(date)) return;
+        if (!ordersByDate.containsKey(date)) scannedNumbers.put(date, orderNumbers);
+        for (Integer orderNumber : orderNumbers) {
+            orderIndex.put(orderNumber, date);
+        }
+    }
+
+    //order numbers currently stored for a date, read from the first column and journal without building orders
+    private Set<Integer> scanOrderNumbers(LocalDate date) throws PersistenceException {
+        Map<Integer, Order> loaded = ordersByDate.get(date);
+        if (loaded != null) return new HashSet<>(loaded.keySet());
+
+        Set<Integer> numbers = new HashSet<>();
+        try {
+            List<String> orderLines = userIO.readAllLines(orderFileName(date));
+            for (int i = 1; i < orderLines.size(); i++) {
+                int number = leadingOrderNumber(orderLines.get(i));
+                if (number > 0) numbers.add(number);
+            }
+            for (String record : userIO.readAllLines(journalFileName(date))) {
+                if (record.startsWith(JOURNAL_ADD + DELIMITER)) {
+                    numbers.add(leadingOrderNumber(record.substring(JOURNAL_ADD.length() + 1)));
+                } else if (record.startsWith(JOURNAL_REMOVE + DELIMITER)) {
+                    numbers.remove(leadingOrderNumber(record.substring(JOURNAL_REMOVE.length() + 1)));
                 }
             }
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read orders file for date " + date, e);
         }
+        return numbers;
+    }
+
+    /**
+     * Reads the highest order number ever stored. Files written, restored or edited while the app was
+     * down differ from OrderFiles.manifest, so their order number column is scanned and can only raise it.
+     * A missing or unreadable mark is rebuilt by scanning every date.
+     */
+    private void loadHighWaterMark() throws PersistenceException {
+        try {
+            int stored = -1;
+            List<String> lines = userIO.readAllLines(highWaterMarkFile);
+            if (lines.size() > 1) {
+                try {
+                    stored = Integer.parseInt(lines.get(1).trim());
+                } catch (NumberFormatException ignored) {
+                    // rebuilt from the order files below
+                }
+            }
 
-        return maxOrderNumber + 1;
+            fileManifest = new OrderFileManifest(userIO, orderFolder);
+            Set<LocalDate> changed = new TreeSet<>();
+            if (stored < 0) {
+                changed.addAll(orderFiles.keySet());
+            } else {
+                for (String name : fileManifest.changedFiles()) {
+                    // bin files belong to the binary DAO, only csv and journal dates are read here
+                    LocalDate date = getDateFromFileName(name);
+                    if (date != null && orderFiles.containsKey(date)) changed.add(date);
+                }
+            }
+            int max = Math.max(stored, 0);
+            for (LocalDate date : changed) {
+                // order number column only, no orders are built
+                Set<Integer> numbers = scanOrderNumbers(date);
+                if (!numbers.isEmpty()) max = Math.max(max, Collections.max(numbers));
+                indexDate(date, numbers);
+            }
+            highWaterMark = max;
+            if (max != stored) writeHighWaterMark();
+            fileManifest.save();
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read order number file " + highWaterMarkFile, e);
+        }
     }
 
+    //order number from the first column of a row, 0 if malformed
+    private int leadingOrderNumber(String line) {
+        int comma = line.indexOf(DELIMITER);
+        String num = comma == -1 ? line : line.substring(0, comma);
+        try {
+            return Integer.parseInt(num.trim());
+        } catch (NumberFormatException e) {
+            return 0; // malformed rows are skipped when loading too
+        }
+    }
 
-    public List<Order> getAllOrders() throws PersistenceException {
-        List<Order> all = new ArrayList<>();
+    private void writeHighWaterMark() throws PersistenceException {
         try {
-            File folder = new File(ORDER_FOLDER);
-            File[] files = folder.listFiles();
+            userIO.writeLines(highWaterMarkFile, List.of("HighestOrderNumber", String.valueOf(highWaterMark)));
+            highWaterMarkDirty = false;
+        } catch (IOException e) {
+            throw new PersistenceException("Could not write order number file " + highWaterMarkFile, e);
+        }
+    }
 
-            if (files == null) {
-                // No files => empty list
-                return all;
-            }
 
-            for (File file : files) {
-                String fileName = file.getName();
+    @Override
+    public List<LocalDate> getOrderDates() {
+        List<LocalDate> dates = new ArrayList<>(orderFiles.keySet());
+        Collections.sort(dates);
+        return dates;
+    }
 
-                // Only process valid order files like "Orders_08212025.txt"
-                if (fileName.startsWith("Orders_") && fileName.endsWith(".txt")) {
-                    LocalDate date = getDateFromFileName(fileName);
-                    loadOrdersForDate(date);  // ensure entries are loaded into ordersByDate
-                }
-            }
+    //dates already in memory are copied, others are parsed without being cached so a full scan stays small
+    @Override
+    public List<Order> readOrdersForDate(LocalDate date) throws PersistenceException {
+        Map<Integer, Order> cached = ordersByDate.get(date);
+        if (cached != null) return new ArrayList<>(cached.values());
 
-            for (Map<Integer, Order> map : ordersByDate.values()) {
-                if (map != null) all.addAll(map.values());
-            }
+        ReentrantLock lock = lockFor(date);
+        lock.lock();
+        try {
+            cached = ordersByDate.get(date);
+            return new ArrayList<>(cached != null ? cached.values() : readFromDisk(date).values());
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            return all;
+    //the csv alone is the whole date unless journal records or unsaved changes are waiting
+    @Override
+    public List<String> readRawRows(LocalDate date) throws PersistenceException {
+        ReentrantLock lock = lockFor(date);
+        lock.lock();
+        try {
+            if (dirtyDates.contains(date) || userIO.exists(journalFileName(date))) return null;
+            List<String> lines = userIO.readAllLines(orderFileName(date));
+            return lines.isEmpty() ? lines : lines.subList(1, lines.size());
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read orders file for date " + date, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //taken from the csv and journal files, unsaved write-behind changes make the date unknown
+    @Override
+    public String getDateStamp(LocalDate date) throws PersistenceException {
+        if (dirtyDates.contains(date)) return null;
+        try {
+            return userIO.fileStamp(orderFileName(date)) + "|" + userIO.fileStamp(journalFileName(date));
+        } catch (IOException e) {
+            throw new PersistenceException("Could not read orders file for date " + date, e);
+        }
+    }
 
-        } catch (Exception e) {
-            throw new PersistenceException("Error reading all orders files", e);
+    /**
+     * Streams the whole history without caching it. A date that is in memory, has journal records or
+     * unsaved changes is read whole; any other date streams its csv through an OrderRunSorter, so a
+     * file bigger than sortRunSize orders is sorted in spilled runs instead of held in memory.
+     * The date lock is only held while the file is read, never while the action runs.
+     */
+    @Override
+    public void forEachOrder(Consumer<Order> action) throws PersistenceException {
+        for (LocalDate date : getOrderDates()) {
+            try (OrderRunSorter sorter = new OrderRunSorter(userIO, sortFolder, sortRunSize)) {
+                List<Order> inMemory = null;
+                ReentrantLock lock = lockFor(date);
+                lock.lock();
+                try {
+                    Map<Integer, Order> cached = ordersByDate.get(date);
+                    if (cached != null || dirtyDates.contains(date) || userIO.exists(journalFileName(date))) {
+                        inMemory = new ArrayList<>((cached != null ? cached : readFromDisk(date)).values());
+                    } else if (userIO.exists(orderFileName(date))) {
+                        try (CountingReader in = new CountingReader(userIO.newReader(orderFileName(date)))) {
+                            fileReader.get().read(in, date, sorter::add);
+                            BYTES_READ.add(in.getCount());
+                        }
+                        ROWS_PARSED.add(fileReader.get().getRowsParsed());
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (inMemory != null) {
+                    inMemory.sort(Comparator.comparingInt(Order::getOrderNumber));
+                    inMemory.forEach(action);
+                } else {
+                    sorter.forEachSorted(action);
+                }
+            } catch (IOException | UncheckedIOException e) {
+                throw new PersistenceException("Could not scan orders for date " + date, e);
+            }
         }
     }
+
+    //the returned list is the whole history, but dates that were not cached are streamed and stay uncached
+    public List<Order> getAllOrders() throws PersistenceException {
+        long start = System.nanoTime();
+        List<Order> all = new ArrayList<>();
+        forEachOrder(all::add);
+        GET_ALL_TIMER.stop(start);
+        return all;
+    }
+    //caller holds the date lock
     private void writeOrdersForDate(LocalDate date) throws PersistenceException {
-        String fileName = "Orders_" + date.format(FILE_DATE) + ".txt";
-        String filePath = ORDER_FOLDER + fileName;
+        long start = System.nanoTime();
+        String filePath = orderFileName(date);
         Map<Integer, Order> orders = ordersByDate.get(date);
 
         // If there are no orders for the date, delete the file if it exists.
         if (orders == null || orders.isEmpty()) {
             try {
                 userIO.deleteIfExists(filePath);
+                orderFiles.remove(date);
             } catch (IOException e) {
                 throw new PersistenceException("Could not delete empty orders file for date " + date, e);
             }
+            deleteJournal(date);
+            if (watcher != null) watcher.recordOwnWrite(date);
             return;
         }
 
-        List<String> lines = new ArrayList<>();
-
-        // Header line
-        lines.add("OrderNumber,CustomerName,State,TaxRate,ProductType,Area,"
-                + "CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,"
-                + "LaborCost,Tax,Total");
-
-    // Add order lines (null-safe: empty string if field is null)
-    for (Order order : orders.values()) {
-        //check every value isnt null before converting to string
-        //if value is null will be dealt with by service layer so unit tests still work
-        String orderNum = String.valueOf(order.getOrderNumber());
-        String cust = order.getCustomerName() == null ? "" : order.getCustomerName();
-        String state = order.getState() == null ? "" : order.getState();
-        String taxRate = order.getTaxRate() == null ? "" : order.getTaxRate().toString();
-        String product = order.getProductType() == null ? "" : order.getProductType();
-        String areaStr = order.getArea() == null ? "" : order.getArea().toString();
-        String costPerSq = order.getCostPerSquareFoot() == null ? "" : order.getCostPerSquareFoot().toString();
-        String laborPerSq = order.getLaborCostPerSquareFoot() == null ? "" : order.getLaborCostPerSquareFoot().toString();
-        String materialCost = order.getMaterialCost() == null ? "" : order.getMaterialCost().toString();
-        String laborCost = order.getLaborCost() == null ? "" : order.getLaborCost().toString();
-        String tax = order.getTax() == null ? "" : order.getTax().toString();
-        String total = order.getTotal() == null ? "" : order.getTotal().toString();
-
-        String line = String.join(",",
-            orderNum,
-            cust,
-            state,
-            taxRate,
-            product,
-            areaStr,
-            costPerSq,
-            laborPerSq,
-            materialCost,
-            laborCost,
-            tax,
-            total
-        );
-        lines.add(line);
-    }
+        // Header line followed by the order lines (null-safe: empty string if field is null)
+        List<String> lines = OrderFileWriter.toLines(orders.values());
 
         try {
             // Write all lines to the file (overwrites if exists)
             userIO.writeLines(filePath, lines);
+            orderFiles.put(date, filePath);
+            BYTES_WRITTEN.add(lineBytes(lines));
         } catch (IOException e) {
             throw new PersistenceException("Could not write orders file for date " + date, e);
         }
+        // the csv now holds everything the journal recorded
+        deleteJournal(date);
+        if (watcher != null) watcher.recordOwnWrite(date);
+        WRITE_TIMER.stop(start);
     }
 }
@@ -0,0 +1,436 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.view.UserIO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * OrderDao backed by an embedded H2 database, enabled with the "sql" Spring profile.
+ * Orders live in one indexed table, so per-date reads, lookups by number and full scans are
+ * queries instead of directory listings. On the first start the existing orders folder is imported
+ * and the import is recorded in the migrations table, so emptying the table later never brings the files back.
+ */
+@Repository
+@Profile("sql")
+public class OrderDaoSqlImpl implements OrderDao {
+
+    private static final String COLUMNS = "order_number, order_date, customer_name, state, tax_rate, product_type, area, "
+            + "cost_per_square_foot, labor_cost_per_square_foot, material_cost, labor_cost, tax, total, "
+            + "tax_rate_scale, area_scale, cost_per_square_foot_scale, labor_cost_per_square_foot_scale, "
+            + "material_cost_scale, labor_cost_scale, tax_scale, total_scale";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM orders";
+    private static final String MERGE = "MERGE INTO orders (" + COLUMNS + ") KEY (order_number) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    //the decimal columns, each followed by its _scale column in the same order
+    private static final String[] DECIMALS = {"tax_rate", "area", "cost_per_square_foot", "labor_cost_per_square_foot",
+            "material_cost", "labor_cost", "tax", "total"};
+    private static final int FIRST_SCALE = 14;
+
+    private static final int IMPORT_BATCH = 1000;
+    private static final String DEFAULT_ORDER_FOLDER = "FileData/Orders/";
+    //recorded in the migrations table once the order files have been imported, they are never imported again
+    private static final String ORDER_FILE_IMPORT = "import-order-files";
+
+    private final Connection connection;
+    private final AtomicInteger lastAllocated = new AtomicInteger();
+
+    @Autowired
+    public OrderDaoSqlImpl(UserIO userIO, @Value("${flooring.orders.sql-url}") String url,
+                           @Value("${flooring.orders.folder:FileData/Orders/}") String orderFolder) {
+        this(userIO, url, orderFolder, true);
+    }
+
+    public OrderDaoSqlImpl(UserIO userIO, String url, boolean importOrderFiles) {
+        this(userIO, url, DEFAULT_ORDER_FOLDER, importOrderFiles);
+    }
+
+    public OrderDaoSqlImpl(UserIO userIO, String url, String orderFolder, boolean importOrderFiles) {
+        try {
+            this.connection = DriverManager.getConnection(url, "sa", "");
+            createSchema();
+            if (importOrderFiles && !isMigrated(ORDER_FILE_IMPORT)) {
+                // a database filled before migrations were recorded has had its import already
+                if (countOrders() == 0) {
+                    importOrders(new OrderDaoFileImpl(userIO, orderFolder)::forEachOrder, ORDER_FILE_IMPORT);
+                } else {
+                    recordMigration(ORDER_FILE_IMPORT);
+                }
+            }
+            lastAllocated.set(maxOrderNumber());
+        } catch (SQLException | PersistenceException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void createSchema() throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            // DECFLOAT keeps every digit but drops trailing zeros, the _scale column puts them back,
+            // so an order reads back with the same scale it was written with
+            st.execute("CREATE TABLE IF NOT EXISTS orders ("
+                    + "order_number INT PRIMARY KEY, "
+                    + "order_date DATE NOT NULL, "
+                    + "customer_name VARCHAR(255), "
+                    + "state VARCHAR(16), "
+                    + "product_type VARCHAR(64))");
+            // tables made by earlier versions had DECIMAL(19,6) columns and no scales, their rows
+            // keep reading back with the 6 places they were stored with
+            for (String column : DECIMALS) {
+                st.execute("ALTER TABLE orders ADD COLUMN IF NOT EXISTS " + column + " DECFLOAT");
+                st.execute("ALTER TABLE orders ALTER COLUMN " + column + " SET DATA TYPE DECFLOAT");
+                st.execute("ALTER TABLE orders ADD COLUMN IF NOT EXISTS " + column + "_scale INT");
+                st.execute("UPDATE orders SET " + column + "_scale = 6 WHERE " + column + "_scale IS NULL AND "
+                        + column + " IS NOT NULL");
+            }
+            st.execute("CREATE TABLE IF NOT EXISTS migrations (name VARCHAR(64) PRIMARY KEY, applied_at TIMESTAMP NOT NULL)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_orders_date ON orders(order_date, order_number)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_orders_state ON orders(state)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_orders_product ON orders(product_type)");
+        }
+    }
+
+    /** One-shot import, every order is written in a single transaction. */
+    public synchronized void importOrders(List<Order> orders) throws PersistenceException {
+        importOrders(orders::forEach, null);
+    }
+
+    /** Imports another DAO's whole history in one transaction, streamed so it never has to fit in memory. */
+    public synchronized void importOrders(OrderDao source) throws PersistenceException {
+        importOrders(source::forEachOrder, null);
+    }
+
+    private interface OrderSource {
+        void forEach(Consumer<Order> action) throws PersistenceException;
+    }
+
+    //a non-null migration is recorded in the same transaction as the orders
+    private void importOrders(OrderSource source, String migration) throws PersistenceException {
+        try {
+            connection.setAutoCommit(false);
+            int[] highest = {0};
+            try (PreparedStatement ps = connection.prepareStatement(MERGE)) {
+                int[] pending = {0};
+                source.forEach(order -> {
+                    if (order.getOrderDate() == null) return;
+                    try {
+                        bind(ps, order.getOrderDate(), order);
+                        ps.addBatch();
+                        // flushed in slices so the batch never holds the whole history
+                        if (++pending[0] == IMPORT_BATCH) {
+                            ps.executeBatch();
+                            pending[0] = 0;
+                        }
+                    } catch (SQLException e) {
+                        throw new UncheckedSqlException(e);
+                    }
+                    highest[0] = Math.max(highest[0], order.getOrderNumber());
+                });
+                ps.executeBatch();
+            } catch (UncheckedSqlException e) {
+                throw e.getCause();
+            }
+            if (migration != null) recordMigration(migration);
+            connection.commit();
+            lastAllocated.accumulateAndGet(highest[0], Math::max);
+        } catch (PersistenceException e) {
+            rollback();
+            throw e;
+        } catch (SQLException e) {
+            rollback();
+            throw new PersistenceException("Could not import orders into the database", e);
+        } finally {
+            autoCommit();
+        }
+    }
+
+    @Override
+    public synchronized List<Order> getOrdersForDate(LocalDate date) throws PersistenceException {
+        return query(SELECT + " WHERE order_date = ? ORDER BY order_number", date);
+    }
+
+    @Override
+    public synchronized Order getOrder(LocalDate date, int orderNumber) throws PersistenceException {
+        List<Order> found = query(SELECT + " WHERE order_date = ? AND order_number = ?", date, orderNumber);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    @Override
+    public synchronized Order getOrder(int orderNumber) throws PersistenceException {
+        List<Order> found = query(SELECT + " WHERE order_number = ?", orderNumber);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    @Override
+    public synchronized Order addOrder(LocalDate date, Order order) throws PersistenceException {
+        rejectNumbersOnOtherDates(date, List.of(order));
+        try (PreparedStatement ps = connection.prepareStatement(MERGE)) {
+            bind(ps, date, order);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new PersistenceException("Could not save order " + order.getOrderNumber() + " for date " + date, e);
+        }
+        lastAllocated.accumulateAndGet(order.getOrderNumber(), Math::max);
+        return order;
+    }
+
+    //one batched statement in one transaction for the whole date
+    @Override
+    public synchronized void addOrders(LocalDate date, Collection<Order> orders) throws PersistenceException {
+        if (orders.isEmpty()) return;
+        rejectNumbersOnOtherDates(date, orders);
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(MERGE)) {
+                for (Order order : orders) {
+                    bind(ps, date, order);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            connection.commit();
+            for (Order order : orders) {
+                lastAllocated.accumulateAndGet(order.getOrderNumber(), Math::max);
+            }
+        } catch (SQLException e) {
+            rollback();
+            throw new PersistenceException("Could not save " + orders.size() + " orders for date " + date, e);
+        } finally {
+            autoCommit();
+        }
+    }
+
+    //every writer takes the same monitor, so the date cannot change between the read and the write
+    @Override
+    public synchronized List<Order> computeOnDate(LocalDate date, UnaryOperator<List<Order>> update) throws PersistenceException {
+        return OrderDao.super.computeOnDate(date, update);
+    }
+
+    @Override
+    public synchronized Order removeOrder(LocalDate date, int orderNumber) throws PersistenceException {
+        Order removed = getOrder(date, orderNumber);
+        if (removed == null) return null;
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM orders WHERE order_date = ? AND order_number = ?")) {
+            ps.setObject(1, date);
+            ps.setInt(2, orderNumber);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new PersistenceException("Could not remove order " + orderNumber + " for date " + date, e);
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized Order updateOrder(LocalDate date, Order order) throws PersistenceException {
+        Order previous = getOrder(date, order.getOrderNumber());
+        if (previous == null) return null;
+        addOrder(date, order);
+        return previous;
+    }
+
+    @Override
+    public void saveAllOrders() {
+        // every statement is committed as it runs
+    }
+
+    @Override
+    public synchronized List<Order> getAllOrders() throws PersistenceException {
+        return query(SELECT + " ORDER BY order_date, order_number");
+    }
+
+    //one ordered query read row by row, the driver pages large results instead of building a list
+    @Override
+    public synchronized void forEachOrder(Consumer<Order> action) throws PersistenceException {
+        try (Statement st = connection.createStatement()) {
+            st.setFetchSize(IMPORT_BATCH);
+            try (ResultSet rs = st.executeQuery(SELECT + " ORDER BY order_date, order_number")) {
+                while (rs.next()) action.accept(read(rs));
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException("Could not read orders from the database", e);
+        }
+    }
+
+    @Override
+    public synchronized List<LocalDate> getOrderDates() throws PersistenceException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT DISTINCT order_date FROM orders ORDER BY order_date")) {
+            List<LocalDate> dates = new ArrayList<>();
+            while (rs.next()) dates.add(rs.getObject(1, LocalDate.class));
+            return dates;
+        } catch (SQLException e) {
+            throw new PersistenceException("Could not read order dates from the database", e);
+        }
+    }
+
+    @Override
+    public int getNextOrderNumber() {
+        return lastAllocated.incrementAndGet();
+    }
+
+    @Override
+    public int allocateOrderNumbers(int count) {
+        return lastAllocated.getAndAdd(count) + 1;
+    }
+
+    @PreDestroy
+    public void shutdown() throws SQLException {
+        connection.close();
+    }
+
+    private List<Order> query(String sql, Object... params) throws PersistenceException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            List<Order> orders = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) orders.add(read(rs));
+            }
+            return orders;
+        } catch (SQLException e) {
+            throw new PersistenceException("Could not read orders from the database", e);
+        }
+    }
+
+    private void bind(PreparedStatement ps, LocalDate date, Order o) throws SQLException {
+        ps.setInt(1, o.getOrderNumber());
+        ps.setObject(2, date);
+        ps.setString(3, o.getCustomerName());
+        ps.setString(4, o.getState());
+        bindDecimal(ps, 5, FIRST_SCALE + 0, o.getTaxRate());
+        ps.setString(6, o.getProductType());
+        bindDecimal(ps, 7, FIRST_SCALE + 1, o.getArea());
+        bindDecimal(ps, 8, FIRST_SCALE + 2, o.getCostPerSquareFoot());
+        bindDecimal(ps, 9, FIRST_SCALE + 3, o.getLaborCostPerSquareFoot());
+        bindDecimal(ps, 10, FIRST_SCALE + 4, o.getMaterialCost());
+        bindDecimal(ps, 11, FIRST_SCALE + 5, o.getLaborCost());
+        bindDecimal(ps, 12, FIRST_SCALE + 6, o.getTax());
+        bindDecimal(ps, 13, FIRST_SCALE + 7, o.getTotal());
+    }
+
+    private Order read(ResultSet rs) throws SQLException {
+        Order o = new Order();
+        o.setOrderNumber(rs.getInt(1));
+        o.setOrderDate(rs.getObject(2, LocalDate.class));
+        o.setCustomerName(rs.getString(3));
+        o.setState(rs.getString(4));
+        o.setTaxRate(readDecimal(rs, 5, FIRST_SCALE + 0));
+        o.setProductType(rs.getString(6));
+        o.setArea(readDecimal(rs, 7, FIRST_SCALE + 1));
+        o.setCostPerSquareFoot(readDecimal(rs, 8, FIRST_SCALE + 2));
+        o.setLaborCostPerSquareFoot(readDecimal(rs, 9, FIRST_SCALE + 3));
+        o.setMaterialCost(readDecimal(rs, 10, FIRST_SCALE + 4));
+        o.setLaborCost(readDecimal(rs, 11, FIRST_SCALE + 5));
+        o.setTax(readDecimal(rs, 12, FIRST_SCALE + 6));
+        o.setTotal(readDecimal(rs, 13, FIRST_SCALE + 7));
+        return o;
+    }
+
+    private static void bindDecimal(PreparedStatement ps, int index, int scaleIndex, BigDecimal value) throws SQLException {
+        ps.setBigDecimal(index, value);
+        if (value == null) {
+            ps.setNull(scaleIndex, Types.INTEGER);
+        } else {
+            ps.setInt(scaleIndex, value.scale());
+        }
+    }
+
+    private static BigDecimal readDecimal(ResultSet rs, int index, int scaleIndex) throws SQLException {
+        BigDecimal value = rs.getBigDecimal(index);
+        int scale = rs.getInt(scaleIndex);
+        if (value == null || rs.wasNull()) return value;
+        return value.setScale(scale);
+    }
+
+    //the upsert is keyed by number alone, so a number already stored on another date is refused instead of moved
+    private void rejectNumbersOnOtherDates(LocalDate date, Collection<Order> orders) throws PersistenceException {
+        Integer[] numbers = orders.stream().map(Order::getOrderNumber).toArray(Integer[]::new);
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT order_number, order_date FROM orders WHERE order_number = ANY(?) AND order_date <> ?")) {
+            ps.setObject(1, numbers);
+            ps.setObject(2, date);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    throw new PersistenceException("Order " + rs.getInt(1) + " already exists for date "
+                            + rs.getObject(2, LocalDate.class) + ", it cannot also be saved for " + date);
+                }
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException("Could not check order numbers for date " + date, e);
+        }
+    }
+
+    private boolean isMigrated(String name) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT 1 FROM migrations WHERE name = ?")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private void recordMigration(String name) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO migrations (name, applied_at) VALUES (?, CURRENT_TIMESTAMP)")) {
+            ps.setString(1, name);
+            ps.executeUpdate();
+        }
+    }
+
+    private int countOrders() throws SQLException {
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM orders")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private int maxOrderNumber() throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(order_number), 0) FROM orders")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    //carries a statement failure out of a Consumer
+    private static final class UncheckedSqlException extends RuntimeException {
+        UncheckedSqlException(SQLException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException ignored) {
+            // the original failure is reported instead
+        }
+    }
+
+    private void autoCommit() {
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException ignored) {
+            // next statement will fail and report it
+        }
+    }
+}
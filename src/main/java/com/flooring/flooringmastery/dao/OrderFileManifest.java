@@ -0,0 +1,71 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.view.UserIO;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Size and modification time of every order file as of the last time the high-water mark was known
+ * to cover them, kept in OrderFiles.manifest next to the mark. A file that is missing from it or listed
+ * with another stamp was written, restored or edited while the app was down, even when the restore kept
+ * the original modification time (cp -p, rsync -a, tar x), so its order numbers are checked again.
+ * The text and binary DAOs share one manifest, so it lists csv, journal and bin files alike.
+ */
+final class OrderFileManifest {
+
+    static final String NAME = "OrderFiles.manifest";
+
+    private final UserIO userIO;
+    private final String folder;
+    private final String manifestFile;
+    //file name -> size@mtime at the last save, null when no manifest was ever written
+    private final Map<String, String> saved;
+
+    OrderFileManifest(UserIO userIO, String folder) throws IOException {
+        this.userIO = userIO;
+        this.folder = folder;
+        this.manifestFile = folder + NAME;
+        List<String> lines = userIO.readAllLines(manifestFile);
+        if (lines.isEmpty()) {
+            saved = null;
+        } else {
+            saved = new HashMap<>();
+            for (String line : lines) {
+                int comma = line.lastIndexOf(',');
+                if (comma > 0) saved.put(line.substring(0, comma), line.substring(comma + 1));
+            }
+        }
+    }
+
+    /** Names of the order files not listed with their current stamp, every one when there is no manifest yet. */
+    List<String> changedFiles() throws IOException {
+        List<String> changed = new ArrayList<>();
+        for (String name : listOrderFiles()) {
+            if (saved == null || !userIO.fileStamp(folder + name).equals(saved.get(name))) changed.add(name);
+        }
+        return changed;
+    }
+
+    /** Records the stamps of the order files as they are now, call once the mark covers all of them. */
+    void save() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String name : listOrderFiles()) {
+            String stamp = userIO.fileStamp(folder + name);
+            if (stamp != null) lines.add(name + "," + stamp);
+        }
+        // never empty, an empty file reads back as no manifest at all
+        if (lines.isEmpty()) lines.add("");
+        userIO.writeLines(manifestFile, lines);
+    }
+
+    private List<String> listOrderFiles() {
+        String[] names = new File(folder).list((dir, name) -> name.startsWith("Orders_")
+                && (name.endsWith(".txt") || name.endsWith(".journal") || name.endsWith(".bin")));
+        return names == null ? List.of() : List.of(names);
+    }
+}
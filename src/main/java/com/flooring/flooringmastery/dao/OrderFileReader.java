@@ -0,0 +1,228 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.model.Order;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streaming parser for Orders_MMddyyyy.txt files.
+ * Reads through one reused char buffer and splits fields in place, so no line Strings or
+ * String.split arrays are built. Decimals go straight from the buffer into BigDecimal.
+ * A field wrapped in double quotes may hold commas, as OrderFileWriter writes customer names.
+ * Not thread safe, use one reader per thread.
+ */
+public class OrderFileReader {
+
+    private static final int FIELD_COUNT = 12;
+    private static final int MAX_REPORTED_LINES = 20;
+
+    private char[] buffer;
+    private final int[] fieldStart = new int[FIELD_COUNT];
+    private final int[] fieldEnd = new int[FIELD_COUNT];
+    private final boolean[] fieldQuoted = new boolean[FIELD_COUNT];
+
+    private int rowsParsed;
+    private int malformedRows;
+    private final List<Integer> malformedLines = new ArrayList<>();
+
+    public OrderFileReader() {
+        this(64 * 1024);
+    }
+
+    public OrderFileReader(int bufferSize) {
+        this.buffer = new char[Math.max(bufferSize, 256)];
+    }
+
+    /**
+     * Parses every row after the header, handing each order to the consumer.
+     * Rows without a valid order number are skipped; rows with an unparsable value keep the
+     * field null. Both are counted in getMalformedRows.
+     */
+    public void read(Reader in, LocalDate date, Consumer<Order> sink) throws IOException {
+        rowsParsed = 0;
+        malformedRows = 0;
+        malformedLines.clear();
+
+        int filled = 0;
+        int lineNumber = 0;
+        boolean eof = false;
+        while (!eof) {
+            if (filled == buffer.length) {
+                // a single line is bigger than the buffer, grow it once
+                char[] bigger = new char[buffer.length * 2];
+                System.arraycopy(buffer, 0, bigger, 0, filled);
+                buffer = bigger;
+            }
+            int n = in.read(buffer, filled, buffer.length - filled);
+            if (n == -1) {
+                eof = true;
+            } else {
+                filled += n;
+            }
+
+            int lineStart = 0;
+            for (int i = 0; i < filled; i++) {
+                if (buffer[i] != '\n') continue;
+                lineNumber++;
+                handleLine(lineStart, i, lineNumber, date, sink);
+                lineStart = i + 1;
+            }
+            if (eof && lineStart < filled) {
+                // last line without a trailing newline
+                lineNumber++;
+                handleLine(lineStart, filled, lineNumber, date, sink);
+                lineStart = filled;
+            }
+
+            // keep the partial line at the front of the buffer for the next read
+            System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+            filled -= lineStart;
+        }
+    }
+
+    /** Parses a single csv row, returning null when the order number is missing or malformed. */
+    public Order parseLine(String line, LocalDate date) {
+        int length = line.length();
+        if (buffer.length < length) buffer = new char[length];
+        line.getChars(0, length, buffer, 0);
+        return parseRow(0, length, date);
+    }
+
+    public int getRowsParsed() {
+        return rowsParsed;
+    }
+
+    public int getMalformedRows() {
+        return malformedRows;
+    }
+
+    /** Line numbers (1-based, header is line 1) of the first malformed rows of the last read. */
+    public List<Integer> getMalformedLines() {
+        return malformedLines;
+    }
+
+    private void handleLine(int start, int end, int lineNumber, LocalDate date, Consumer<Order> sink) {
+        if (end > start && buffer[end - 1] == '\r') end--;
+        if (lineNumber == 1 || end == start) return; // header or blank line
+
+        rowsParsed++;
+        int before = malformedRows;
+        Order order = parseRow(start, end, date);
+        if (order == null && malformedRows == before) malformedRows++;
+        if (malformedRows != before && malformedLines.size() < MAX_REPORTED_LINES) {
+            malformedLines.add(lineNumber);
+        }
+        if (order != null) sink.accept(order);
+    }
+
+    private Order parseRow(int start, int end, LocalDate date) {
+        // record field boundaries, anything after a twelfth comma is ignored
+        int fields = 0;
+        int pos = start;
+        while (fields < FIELD_COUNT) {
+            boolean quoted = pos < end && buffer[pos] == '"';
+            fieldQuoted[fields] = quoted;
+            if (quoted) {
+                // commas inside the quotes belong to the field, "" is a quote
+                int close = pos + 1;
+                while (close < end && (buffer[close] != '"' || (close + 1 < end && buffer[close + 1] == '"'))) {
+                    close += buffer[close] == '"' ? 2 : 1;
+                }
+                fieldStart[fields] = pos + 1;
+                fieldEnd[fields] = Math.min(close, end);
+                pos = Math.min(close + 1, end);
+                while (pos < end && buffer[pos] != ',') pos++;
+            } else {
+                fieldStart[fields] = pos;
+                while (pos < end && buffer[pos] != ',') pos++;
+                fieldEnd[fields] = pos;
+            }
+            fields++;
+            if (pos >= end) break;
+            pos++;
+        }
+
+        // order number (required) - if missing or malformed, skip this line
+        if (fields == 0 || fieldEnd[0] == fieldStart[0]) return null;
+        int orderNumber = 0;
+        for (int i = fieldStart[0]; i < fieldEnd[0]; i++) {
+            char c = buffer[i];
+            if (c < '0' || c > '9' || orderNumber > (Integer.MAX_VALUE - 9) / 10) return null;
+            orderNumber = orderNumber * 10 + (c - '0');
+        }
+
+        Order order = new Order();
+        order.setOrderNumber(orderNumber);
+        // set the order date from the file being read
+        order.setOrderDate(date);
+
+        boolean malformed = false;
+        // optional fields - set if present
+        if (fields > 1) order.setCustomerName(text(1));
+        if (fields > 2) order.setState(text(2));
+        if (fields > 4) order.setProductType(text(4));
+        if (fields > 3 && !empty(3)) { order.setTaxRate(decimal(3)); malformed |= order.getTaxRate() == null; }
+        if (fields > 5 && !empty(5)) { order.setArea(decimal(5)); malformed |= order.getArea() == null; }
+        if (fields > 6 && !empty(6)) { order.setCostPerSquareFoot(decimal(6)); malformed |= order.getCostPerSquareFoot() == null; }
+        if (fields > 7 && !empty(7)) { order.setLaborCostPerSquareFoot(decimal(7)); malformed |= order.getLaborCostPerSquareFoot() == null; }
+        if (fields > 8 && !empty(8)) { order.setMaterialCost(decimal(8)); malformed |= order.getMaterialCost() == null; }
+        if (fields > 9 && !empty(9)) { order.setLaborCost(decimal(9)); malformed |= order.getLaborCost() == null; }
+        if (fields > 10 && !empty(10)) { order.setTax(decimal(10)); malformed |= order.getTax() == null; }
+        if (fields > 11 && !empty(11)) { order.setTotal(decimal(11)); malformed |= order.getTotal() == null; }
+        if (malformed) malformedRows++;
+        return order;
+    }
+
+    private boolean empty(int field) {
+        return fieldEnd[field] == fieldStart[field];
+    }
+
+    private String text(int field) {
+        if (empty(field)) return null;
+        String text = new String(buffer, fieldStart[field], fieldEnd[field] - fieldStart[field]);
+        return fieldQuoted[field] ? text.replace("\"\"", "\"") : text;
+    }
+
+    // plain decimals up to 18 digits are accumulated into a long, anything else uses BigDecimal's char[] parser
+    private BigDecimal decimal(int field) {
+        int i = fieldStart[field];
+        int end = fieldEnd[field];
+        boolean negative = false;
+        if (buffer[i] == '-' || buffer[i] == '+') {
+            negative = buffer[i] == '-';
+            i++;
+        }
+
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            char c = buffer[i];
+            if (c >= '0' && c <= '9') {
+                if (++digits > 18) return slowDecimal(field);
+                unscaled = unscaled * 10 + (c - '0');
+                if (scale >= 0) scale++;
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return slowDecimal(field);
+            }
+        }
+        if (digits == 0) return null;
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    private BigDecimal slowDecimal(int field) {
+        try {
+            return new BigDecimal(buffer, fieldStart[field], fieldEnd[field] - fieldStart[field]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.flooring.flooringmastery.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Watches the orders folder and reports which dates were changed by something other than the DAO.
+ * Events are debounced per date: every event pushes that date's callback back by the debounce delay,
+ * so a burst of writes to one file ends in a single callback once the burst is over.
+ * Writes the DAO makes itself are recorded with recordOwnWrite and do not trigger a callback.
+ */
+public class OrderFileWatcher implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OrderFileWatcher.class);
+
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("MMddyyyy");
+
+    private final Path folder;
+    private final long debounceMillis;
+    private final Consumer<LocalDate> onChange;
+    private final WatchService watchService;
+    private final Thread watchThread;
+    private final ScheduledExecutorService debouncer;
+    //the callback waiting to fire for each date
+    private final Map<LocalDate, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+    //size and modified time of a date's files right after the DAO last wrote them
+    private final Map<LocalDate, String> ownWrites = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public OrderFileWatcher(Path folder, long debounceMillis, Consumer<LocalDate> onChange) throws IOException {
+        this.folder = folder;
+        this.debounceMillis = debounceMillis;
+        this.onChange = onChange;
+        this.watchService = folder.getFileSystem().newWatchService();
+        folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+        this.debouncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "order-file-debounce");
+            t.setDaemon(true);
+            return t;
+        });
+        this.watchThread = new Thread(this::watch, "order-file-watch");
+        this.watchThread.setDaemon(true);
+        this.watchThread.start();
+    }
+
+    /** Remembers the current state of a date's files so the events from this write are ignored. */
+    public void recordOwnWrite(LocalDate date) {
+        ownWrites.put(date, fingerprint(date));
+    }
+
+    private void watch() {
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // events were dropped, every date with a file may have changed
+                    rescanFolder();
+                    continue;
+                }
+                LocalDate date = dateOf(event.context().toString());
+                if (date != null) schedule(date);
+            }
+            if (!key.reset()) return; // folder is gone
+        }
+    }
+
+    private void schedule(LocalDate date) {
+        try {
+            pending.compute(date, (d, previous) -> {
+                if (previous != null) previous.cancel(false);
+                return debouncer.schedule(() -> fire(d), debounceMillis, TimeUnit.MILLISECONDS);
+            });
+        } catch (RejectedExecutionException e) {
+            // closed while this event was being handled
+        }
+    }
+
+    private void fire(LocalDate date) {
+        pending.remove(date);
+        if (closed) return;
+        // the files are exactly as the DAO left them, nothing outside changed them
+        if (Objects.equals(ownWrites.get(date), fingerprint(date))) return;
+        try {
+            onChange.accept(date);
+        } catch (RuntimeException e) {
+            LOG.error("Could not reload orders for {}", date, e);
+        }
+    }
+
+    private void rescanFolder() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "Orders_*")) {
+            for (Path file : files) {
+                LocalDate date = dateOf(file.getFileName().toString());
+                if (date != null) schedule(date);
+            }
+        } catch (IOException e) {
+            LOG.error("Could not rescan {}", folder, e);
+        }
+    }
+
+    private String fingerprint(LocalDate date) {
+        String name = "Orders_" + date.format(FILE_DATE);
+        return describe(folder.resolve(name + ".txt")) + "|" + describe(folder.resolve(name + ".journal"));
+    }
+
+    private String describe(Path file) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            return attrs.size() + "@" + attrs.lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return "-";
+        }
+    }
+
+    //Orders_MMddyyyy.txt or .journal, temp files and anything else are ignored
+    private LocalDate dateOf(String fileName) {
+        if (fileName.length() < 15 || !fileName.startsWith("Orders_")
+                || !(fileName.endsWith(".txt") || fileName.endsWith(".journal"))) return null;
+        try {
+            return LocalDate.parse(fileName.substring(7, 15), FILE_DATE);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        debouncer.shutdownNow();
+        watchService.close();
+        watchThread.interrupt();
+    }
+}
@@ -0,0 +1,68 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.model.Order;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Formats orders as rows of an Orders_MMddyyyy.txt file, the counterpart of OrderFileReader.
+ */
+public class OrderFileWriter {
+
+    public static final String HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,"
+            + "CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,"
+            + "LaborCost,Tax,Total";
+
+    private OrderFileWriter() {
+    }
+
+    //header followed by one row per order
+    public static List<String> toLines(Collection<Order> orders) {
+        List<String> lines = new ArrayList<>(orders.size() + 1);
+        lines.add(HEADER);
+        for (Order order : orders) {
+            lines.add(toLine(order));
+        }
+        return lines;
+    }
+
+    //names may hold commas, such a field is wrapped in double quotes with inner quotes doubled
+    public static String quote(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0) return field;
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    public static String toLine(Order order) {
+        //check every value isnt null before converting to string
+        //if value is null will be dealt with by service layer so unit tests still work
+        String orderNum = String.valueOf(order.getOrderNumber());
+        String cust = order.getCustomerName() == null ? "" : quote(order.getCustomerName());
+        String state = order.getState() == null ? "" : order.getState();
+        String taxRate = order.getTaxRate() == null ? "" : order.getTaxRate().toString();
+        String product = order.getProductType() == null ? "" : order.getProductType();
+        String areaStr = order.getArea() == null ? "" : order.getArea().toString();
+        String costPerSq = order.getCostPerSquareFoot() == null ? "" : order.getCostPerSquareFoot().toString();
+        String laborPerSq = order.getLaborCostPerSquareFoot() == null ? "" : order.getLaborCostPerSquareFoot().toString();
+        String materialCost = order.getMaterialCost() == null ? "" : order.getMaterialCost().toString();
+        String laborCost = order.getLaborCost() == null ? "" : order.getLaborCost().toString();
+        String tax = order.getTax() == null ? "" : order.getTax().toString();
+        String total = order.getTotal() == null ? "" : order.getTotal().toString();
+
+        return String.join(",",
+            orderNum,
+            cust,
+            state,
+            taxRate,
+            product,
+            areaStr,
+            costPerSq,
+            laborPerSq,
+            materialCost,
+            laborCost,
+            tax,
+            total
+        );
+    }
+}
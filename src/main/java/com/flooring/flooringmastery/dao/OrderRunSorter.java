@@ -0,0 +1,168 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.view.UserIO;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * External merge sort of orders by (date, order number) for scans that may not fit in memory.
+ * OrderDaoFileImpl.forEachOrder feeds it one day file at a time, the dates themselves already come
+ * in order from the manifest, so it bounds the memory of one large day, not of a scan across days.
+ * Exports format whole days in their own bounded window and do not go through it.
+ * Orders are collected into runs of at most runSize; a full run is sorted and spilled to a temp
+ * file as "date,csv row". forEachSorted then k-way merges the runs through a priority queue, so
+ * memory holds one run while adding and one order per run while merging.
+ * When the same (date, order number) is added twice only the last one is kept, the way a later
+ * row replaces an earlier one when an orders file is loaded.
+ * Not thread safe, close deletes the run files.
+ */
+public class OrderRunSorter implements AutoCloseable {
+
+    private static final Comparator<Order> BY_DATE_AND_NUMBER =
+            Comparator.comparing(Order::getOrderDate).thenComparingInt(Order::getOrderNumber);
+
+    private final UserIO userIO;
+    private final String tempFolder;
+    private final int runSize;
+    private final String runPrefix = "run-" + UUID.randomUUID() + "-";
+    private final List<Order> run = new ArrayList<>();
+    private final List<String> runFiles = new ArrayList<>();
+    private final OrderFileReader lineParser = new OrderFileReader(1024);
+
+    public OrderRunSorter(UserIO userIO, String tempFolder, int runSize) {
+        this.userIO = userIO;
+        this.tempFolder = tempFolder.endsWith("/") ? tempFolder : tempFolder + "/";
+        this.runSize = Math.max(runSize, 1);
+    }
+
+    /** Adds an order with a date, spilling the current run to disk once it is full. */
+    public void add(Order order) {
+        run.add(order);
+        if (run.size() >= runSize) {
+            try {
+                spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write sort run to " + tempFolder, e);
+            }
+        }
+    }
+
+    public int getSpilledRuns() {
+        return runFiles.size();
+    }
+
+    /** Hands every order to the action in (date, order number) order. */
+    public void forEachSorted(Consumer<Order> action) throws IOException {
+        // stable sort, so a duplicate added later still comes after the earlier one
+        run.sort(BY_DATE_AND_NUMBER);
+        if (runFiles.isEmpty()) {
+            emitLastOfEach(run.iterator(), action);
+            return;
+        }
+
+        // the in-memory tail is the newest run and merges last among equal keys
+        List<Iterator<Order>> sources = new ArrayList<>();
+        List<BufferedReader> readers = new ArrayList<>();
+        try {
+            for (String file : runFiles) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(userIO.newInputStream(file), StandardCharsets.UTF_8));
+                readers.add(in);
+                sources.add(runIterator(in));
+            }
+            sources.add(run.iterator());
+            emitLastOfEach(merge(sources), action);
+        } finally {
+            for (BufferedReader in : readers) in.close();
+        }
+    }
+
+    private void spill() throws IOException {
+        run.sort(BY_DATE_AND_NUMBER);
+        String file = tempFolder + runPrefix + runFiles.size() + ".csv";
+        userIO.createDirectories(tempFolder);
+        runFiles.add(file);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(userIO.newOutputStream(file), StandardCharsets.UTF_8))) {
+            for (Order order : run) {
+                out.write(order.getOrderDate().toString());
+                out.write(',');
+                out.write(OrderFileWriter.toLine(order));
+                out.write('\n');
+            }
+        }
+        run.clear();
+    }
+
+    //the smallest head of all runs each time, ties go to the earlier run
+    private Iterator<Order> merge(List<Iterator<Order>> sources) {
+        PriorityQueue<Map.Entry<Order, Integer>> heads = new PriorityQueue<>(
+                Map.Entry.<Order, Integer>comparingByKey(BY_DATE_AND_NUMBER).thenComparing(Map.Entry.comparingByValue()));
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i).hasNext()) heads.add(Map.entry(sources.get(i).next(), i));
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Order next() {
+                Map.Entry<Order, Integer> head = heads.poll();
+                Iterator<Order> source = sources.get(head.getValue());
+                if (source.hasNext()) heads.add(Map.entry(source.next(), head.getValue()));
+                return head.getKey();
+            }
+        };
+    }
+
+    private Iterator<Order> runIterator(BufferedReader in) {
+        return new Iterator<>() {
+            private Order next = read();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Order next() {
+                Order current = next;
+                next = read();
+                return current;
+            }
+
+            private Order read() {
+                try {
+                    String line = in.readLine();
+                    if (line == null) return null;
+                    int comma = line.indexOf(',');
+                    return lineParser.parseLine(line.substring(comma + 1), LocalDate.parse(line.substring(0, comma)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read sort run", e);
+                }
+            }
+        };
+    }
+
+    private void emitLastOfEach(Iterator<Order> sorted, Consumer<Order> action) {
+        Order pending = null;
+        while (sorted.hasNext()) {
+            Order order = sorted.next();
+            if (pending != null && BY_DATE_AND_NUMBER.compare(pending, order) != 0) action.accept(pending);
+            pending = order;
+        }
+        if (pending != null) action.accept(pending);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (String file : runFiles) userIO.deleteIfExists(file);
+        runFiles.clear();
+        run.clear();
+    }
+}
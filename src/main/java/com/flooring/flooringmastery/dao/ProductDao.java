@@ -7,4 +7,8 @@ import java.util.List;
 public interface ProductDao {
     List<Product> getAllProducts() throws PersistenceException;
     Product getProductByType(String productType) throws PersistenceException;
+    //changes whenever the data is reloaded, 0 for data that never changes
+    default long getVersion() {
+        return 0;
+    }
 }
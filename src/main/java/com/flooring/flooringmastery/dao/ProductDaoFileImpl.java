@@ -3,9 +3,11 @@ package com.flooring.flooringmastery.dao;
 import com.flooring.flooringmastery.model.Product;
 import com.flooring.flooringmastery.exceptions.PersistenceException;
 import com.flooring.flooringmastery.view.UserIO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
-import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.*;
 
@@ -14,51 +16,60 @@ public class ProductDaoFileImpl implements ProductDao {
 
     private static final String PRODUCT_FILE = "FileData/Data/Products.txt";
     private static final String DELIMITER = ",";
-    private final Map<String, Product> products = new HashMap<>();
-    private final UserIO userIO;
+    //lower-case product type -> product, replaced whole when Products.txt changes
+    private final ReferenceFileCache<Map<String, Product>> products;
 
     public ProductDaoFileImpl(UserIO userIO) {
-        this.userIO = userIO;
+        this(userIO, 0);
+    }
+
+    @Autowired
+    public ProductDaoFileImpl(UserIO userIO, @Value("${flooring.reference.reload-ms:0}") long reloadMillis) {
         try {
-            loadProducts();
+            this.products = new ReferenceFileCache<>(userIO, PRODUCT_FILE, ProductDaoFileImpl::parseProducts, reloadMillis);
         } catch (PersistenceException e) {
             throw new RuntimeException(e);
         }
     }
     @Override
     public List<Product> getAllProducts() throws PersistenceException {
-        if (products.isEmpty()) {
-            loadProducts();
-        }
-        return new ArrayList<>(products.values());
+        return new ArrayList<>(products.get().values());
     }
 
     @Override
     public Product getProductByType(String productType) throws PersistenceException {
-        if (products.isEmpty()) {
-            loadProducts();
-        }
-        return products.get(productType.toLowerCase());
+        return products.get().get(productType.toLowerCase());
     }
 
-    private void loadProducts() throws PersistenceException {
-        try {
-            List<String> lines = userIO.readAllLines(PRODUCT_FILE);
-            if (!lines.isEmpty()) lines.remove(0); // remove header if present
+    @Override
+    public long getVersion() {
+        return products.version();
+    }
+
+    //checks Products.txt now instead of waiting for the next poll
+    public boolean reloadIfChanged() throws PersistenceException {
+        return products.reloadIfChanged();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        products.close();
+    }
 
-            for (String line : lines) {
-                String[] tokens = line.split(DELIMITER);
-                if (tokens.length < 3) continue;
+    private static Map<String, Product> parseProducts(List<String> lines) {
+        Map<String, Product> parsed = new LinkedHashMap<>();
+        // remove header if present
+        for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+            String[] tokens = line.split(DELIMITER);
+            if (tokens.length < 3) continue;
 
-                Product product = new Product();
-                product.setProductType(tokens[0]);
-                product.setCostPerSquareFoot(new BigDecimal(tokens[1]));
-                product.setLaborCostPerSquareFoot(new BigDecimal(tokens[2]));
+            Product product = new Product();
+            product.setProductType(tokens[0]);
+            product.setCostPerSquareFoot(new BigDecimal(tokens[1]));
+            product.setLaborCostPerSquareFoot(new BigDecimal(tokens[2]));
 
-                products.put(product.getProductType().toLowerCase(), product);
-            }
-        } catch (IOException e) {
-            throw new PersistenceException("Could not load product data from " + PRODUCT_FILE, e);
+            parsed.put(product.getProductType().toLowerCase(), product);
         }
+        return Collections.unmodifiableMap(parsed);
     }
 }
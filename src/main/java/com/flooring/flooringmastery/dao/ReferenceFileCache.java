@@ -0,0 +1,113 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.view.UserIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the parsed contents of one reference file (Taxes.txt, Products.txt) as an immutable
+ * snapshot behind an AtomicReference. Readers only ever do a volatile read, a reload builds the
+ * new snapshot off to the side and swaps it in whole, so nobody waits or sees a half-loaded table.
+ * With a poll interval the file's stamp is checked in the background; a change is loaded once
+ * the stamp has stayed the same for a whole interval, so a file still being saved is not read.
+ * A file that fails to parse leaves the previous snapshot in place.
+ */
+class ReferenceFileCache<T> implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReferenceFileCache.class);
+
+    //turns the file's lines, header included, into the immutable value readers share
+    interface Parser<T> {
+        T parse(List<String> lines);
+    }
+
+    private record Snapshot<T>(T value, String stamp, long version) {
+    }
+
+    private final UserIO userIO;
+    private final String fileName;
+    private final Parser<T> parser;
+    private final AtomicReference<Snapshot<T>> current = new AtomicReference<>();
+    private ScheduledExecutorService poller;
+    //stamp seen on the previous poll, a change is only loaded once it has settled
+    private String lastSeenStamp;
+
+    ReferenceFileCache(UserIO userIO, String fileName, Parser<T> parser, long pollMillis) throws PersistenceException {
+        this.userIO = userIO;
+        this.fileName = fileName;
+        this.parser = parser;
+        reload();
+        if (pollMillis > 0) {
+            poller = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "reference-reload");
+                t.setDaemon(true);
+                return t;
+            });
+            poller.scheduleWithFixedDelay(this::pollQuietly, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    T get() {
+        return current.get().value();
+    }
+
+    //bumped by every reload that swapped in new contents
+    long version() {
+        return current.get().version();
+    }
+
+    /** Reads the file again if its stamp changed since the last load, returns whether a new snapshot was published. */
+    boolean reloadIfChanged() throws PersistenceException {
+        Snapshot<T> loaded = current.get();
+        if (Objects.equals(stamp(), loaded.stamp())) return false;
+        return reload();
+    }
+
+    private boolean reload() throws PersistenceException {
+        try {
+            String before = userIO.fileStamp(fileName);
+            List<String> lines = userIO.readAllLines(fileName);
+            // rewritten while being read, the next poll picks up the finished file
+            if (!Objects.equals(before, userIO.fileStamp(fileName)) && current.get() != null) return false;
+            T value = parser.parse(lines);
+            Snapshot<T> previous = current.get();
+            current.set(new Snapshot<>(value, before, previous == null ? 0 : previous.version() + 1));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            throw new PersistenceException("Could not load reference data from " + fileName, e);
+        }
+    }
+
+    private void pollQuietly() {
+        try {
+            String stamp = stamp();
+            boolean settled = Objects.equals(stamp, lastSeenStamp);
+            lastSeenStamp = stamp;
+            if (settled && !Objects.equals(stamp, current.get().stamp())) reload();
+        } catch (PersistenceException e) {
+            LOG.warn("{}, keeping the previous data", e.getMessage(), e.getCause());
+        }
+    }
+
+    private String stamp() throws PersistenceException {
+        try {
+            return userIO.fileStamp(fileName);
+        } catch (IOException e) {
+            throw new PersistenceException("Could not check reference file " + fileName, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (poller != null) poller.shutdownNow();
+    }
+}
@@ -0,0 +1,27 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.model.SalesTotals;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public interface SalesDao {
+    //adds one stored order to the running totals of its date, state and product, called after the order is stored
+    void recordAdded(LocalDate date, Order order) throws PersistenceException;
+    //takes a removed order back out of the running totals
+    void recordRemoved(LocalDate date, Order order) throws PersistenceException;
+    default void recordReplaced(LocalDate date, Order previous, Order current) throws PersistenceException {
+        recordRemoved(date, previous);
+        recordAdded(date, current);
+    }
+    //totals for the dates from..to inclusive, keyed by date, state or product type
+    Map<LocalDate, SalesTotals> getTotalsByDate(LocalDate from, LocalDate to) throws PersistenceException;
+    Map<String, SalesTotals> getTotalsByState(LocalDate from, LocalDate to) throws PersistenceException;
+    Map<String, SalesTotals> getTotalsByProduct(LocalDate from, LocalDate to) throws PersistenceException;
+    //throws the totals away and recomputes them with one scan of every stored order
+    void rebuild(OrderDao orderDao) throws PersistenceException;
+    //the stored orders changed behind the totals, the next read rebuilds them
+    void markStale();
+}
@@ -0,0 +1,247 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.model.SalesTotals;
+import com.flooring.flooringmastery.view.UserIO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Running sales totals per (date, state, product), kept in memory and in a sidecar next to the orders.
+ * Every change is one totals update plus one appended journal line, so recording an order never
+ * depends on how much history there is. The journal is folded into the totals file every
+ * JOURNAL_COMPACT_THRESHOLD lines. Journal lines carry a sequence number and the totals file records
+ * the last one it contains, so a crash between writing the totals file and deleting the journal
+ * never applies a line twice. When neither file exists the totals are built with one scan of the orders
+ * the first time they are used, not at startup. A reload of order files changed by other tools marks the
+ * totals stale and the next report scans the orders again; changes recorded while stale are already in
+ * the orders that scan reads, so they are not applied on top.
+ */
+@Repository
+public class SalesDaoFileImpl implements SalesDao {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SalesDaoFileImpl.class);
+
+    private static final String HEADER = "Date,State,ProductType,Count,Area,MaterialCost,LaborCost,Tax,Total";
+    private static final String SEQUENCE_PREFIX = "#journal=";
+    private static final String DELIMITER = ",";
+    private static final int JOURNAL_COMPACT_THRESHOLD = 1000;
+
+    private record Cell(String state, String productType) {
+    }
+
+    private final UserIO userIO;
+    private final String totalsFile;
+    private final String journalFile;
+    private final OrderDao orderDao;
+    //date -> (state, product) -> totals, sorted so a date range is a subMap
+    private final NavigableMap<LocalDate, Map<Cell, SalesTotals>> totals = new TreeMap<>();
+    private long sequence;
+    private int journalLines;
+    //no usable totals yet, the next read scans the orders
+    private boolean stale;
+
+    @Autowired
+    public SalesDaoFileImpl(UserIO userIO, OrderDao orderDao,
+                            @Value("${flooring.sales.file:FileData/Reports/SalesTotals.txt}") String totalsFile) {
+        this.userIO = userIO;
+        this.totalsFile = totalsFile;
+        this.journalFile = totalsFile.replaceFirst("\\.txt$", "") + ".journal";
+        this.orderDao = orderDao;
+        try {
+            if (!userIO.exists(this.totalsFile) && !userIO.exists(journalFile)) {
+                stale = true;
+            } else {
+                load();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (orderDao != null) orderDao.addExternalChangeListener(this::markStale);
+    }
+
+    @Override
+    public synchronized void recordAdded(LocalDate date, Order order) throws PersistenceException {
+        if (stale) return;
+        apply(date, order, 1);
+        appendJournal("+", date, order);
+    }
+
+    @Override
+    public synchronized void recordRemoved(LocalDate date, Order order) throws PersistenceException {
+        if (stale) return;
+        apply(date, order, -1);
+        appendJournal("-", date, order);
+    }
+
+    @Override
+    public synchronized Map<LocalDate, SalesTotals> getTotalsByDate(LocalDate from, LocalDate to)
+            throws PersistenceException {
+        rebuildIfStale();
+        Map<LocalDate, SalesTotals> byDate = new TreeMap<>();
+        for (Map.Entry<LocalDate, Map<Cell, SalesTotals>> day : totals.subMap(from, true, to, true).entrySet()) {
+            SalesTotals sum = SalesTotals.EMPTY;
+            for (SalesTotals cell : day.getValue().values()) sum = sum.plus(cell);
+            if (!sum.isEmpty()) byDate.put(day.getKey(), sum);
+        }
+        return byDate;
+    }
+
+    @Override
+    public synchronized Map<String, SalesTotals> getTotalsByState(LocalDate from, LocalDate to)
+            throws PersistenceException {
+        rebuildIfStale();
+        return sumBy(from, to, Cell::state);
+    }
+
+    @Override
+    public synchronized Map<String, SalesTotals> getTotalsByProduct(LocalDate from, LocalDate to)
+            throws PersistenceException {
+        rebuildIfStale();
+        return sumBy(from, to, Cell::productType);
+    }
+
+    @Override
+    public synchronized void rebuild(OrderDao orderDao) throws PersistenceException {
+        totals.clear();
+        orderDao.forEachOrder(order -> apply(order.getOrderDate(), order, 1));
+        writeTotals();
+        stale = false;
+    }
+
+    //the sidecar goes too, so a restart before the next report rebuilds instead of loading old totals
+    @Override
+    public synchronized void markStale() {
+        stale = true;
+        try {
+            userIO.deleteIfExists(totalsFile);
+            userIO.deleteIfExists(journalFile);
+        } catch (IOException e) {
+            LOG.warn("Could not remove stale sales totals {}", totalsFile, e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() throws PersistenceException {
+        if (!stale && journalLines > 0) writeTotals();
+    }
+
+    private void rebuildIfStale() throws PersistenceException {
+        if (stale) rebuild(orderDao);
+    }
+
+    private Map<String, SalesTotals> sumBy(LocalDate from, LocalDate to, Function<Cell, String> key) {
+        Map<String, SalesTotals> sums = new TreeMap<>();
+        for (Map<Cell, SalesTotals> day : totals.subMap(from, true, to, true).values()) {
+            day.forEach((cell, sum) -> sums.merge(key.apply(cell), sum, SalesTotals::plus));
+        }
+        sums.values().removeIf(SalesTotals::isEmpty);
+        return sums;
+    }
+
+    private void apply(LocalDate date, Order order, int sign) {
+        if (date == null) return;
+        Cell cell = new Cell(Objects.toString(order.getState(), ""), Objects.toString(order.getProductType(), ""));
+        Map<Cell, SalesTotals> day = totals.computeIfAbsent(date, d -> new HashMap<>());
+        SalesTotals updated = day.getOrDefault(cell, SalesTotals.EMPTY).plus(order, sign);
+        if (updated.isEmpty()) {
+            // every order of the cell is gone, drop it so removed dates do not linger
+            day.remove(cell);
+            if (day.isEmpty()) totals.remove(date);
+        } else {
+            day.put(cell, updated);
+        }
+    }
+
+    private void appendJournal(String sign, LocalDate date, Order order) throws PersistenceException {
+        String line = String.join(DELIMITER, String.valueOf(++sequence), sign, date.toString(),
+                Objects.toString(order.getState(), ""), Objects.toString(order.getProductType(), ""),
+                text(order.getArea()), text(order.getMaterialCost()), text(order.getLaborCost()),
+                text(order.getTax()), text(order.getTotal()));
+        try {
+            userIO.appendLines(journalFile, List.of(line));
+        } catch (IOException e) {
+            throw new PersistenceException("Could not append to sales journal " + journalFile, e);
+        }
+        if (++journalLines >= JOURNAL_COMPACT_THRESHOLD) writeTotals();
+    }
+
+    //replaces the totals file, then drops the journal lines it now contains
+    private void writeTotals() throws PersistenceException {
+        List<String> lines = new ArrayList<>();
+        lines.add(SEQUENCE_PREFIX + sequence);
+        lines.add(HEADER);
+        totals.forEach((date, day) -> day.forEach((cell, sum) -> lines.add(String.join(DELIMITER,
+                date.toString(), cell.state(), cell.productType(), String.valueOf(sum.getCount()),
+                sum.getArea().toString(), sum.getMaterialCost().toString(), sum.getLaborCost().toString(),
+                sum.getTax().toString(), sum.getTotal().toString()))));
+        try {
+            userIO.writeLines(totalsFile, lines);
+            userIO.deleteIfExists(journalFile);
+        } catch (IOException e) {
+            throw new PersistenceException("Could not write sales totals " + totalsFile, e);
+        }
+        journalLines = 0;
+    }
+
+    private void load() throws IOException {
+        long written = 0;
+        if (userIO.exists(totalsFile)) {
+            for (String line : userIO.readAllLines(totalsFile)) {
+                if (line.startsWith(SEQUENCE_PREFIX)) {
+                    written = Long.parseLong(line.substring(SEQUENCE_PREFIX.length()).trim());
+                    continue;
+                }
+                if (line.isBlank() || line.startsWith("Date,")) continue;
+                String[] t = line.split(DELIMITER, -1);
+                if (t.length < 9) {
+                    LOG.warn("Skipping malformed line in {}: {}", totalsFile, line);
+                    continue;
+                }
+                totals.computeIfAbsent(LocalDate.parse(t[0]), d -> new HashMap<>()).put(new Cell(t[1], t[2]),
+                        new SalesTotals(Long.parseLong(t[3]), new BigDecimal(t[4]), new BigDecimal(t[5]),
+                                new BigDecimal(t[6]), new BigDecimal(t[7]), new BigDecimal(t[8])));
+            }
+        }
+        sequence = written;
+
+        if (!userIO.exists(journalFile)) return;
+        for (String line : userIO.readAllLines(journalFile)) {
+            String[] t = line.split(DELIMITER, -1);
+            if (t.length < 10) continue; // torn last line
+            long lineSequence = Long.parseLong(t[0]);
+            journalLines++;
+            // already folded into the totals file
+            if (lineSequence <= written) continue;
+            Order order = new Order();
+            order.setState(t[3]);
+            order.setProductType(t[4]);
+            order.setArea(decimal(t[5]));
+            order.setMaterialCost(decimal(t[6]));
+            order.setLaborCost(decimal(t[7]));
+            order.setTax(decimal(t[8]));
+            order.setTotal(decimal(t[9]));
+            apply(LocalDate.parse(t[2]), order, "+".equals(t[1]) ? 1 : -1);
+            sequence = Math.max(sequence, lineSequence);
+        }
+    }
+
+    private static String text(BigDecimal value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private static BigDecimal decimal(String text) {
+        return text.isEmpty() ? null : new BigDecimal(text);
+    }
+}
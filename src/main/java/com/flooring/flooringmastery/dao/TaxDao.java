@@ -7,4 +7,8 @@ import java.util.List;
 public interface TaxDao {
     List<Tax> getAllTaxes() throws PersistenceException;
     Tax getTaxByState(String stateAbbreviation) throws PersistenceException;
+    //changes whenever the data is reloaded, 0 for data that never changes
+    default long getVersion() {
+        return 0;
+    }
 }
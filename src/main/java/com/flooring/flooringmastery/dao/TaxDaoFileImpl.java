@@ -3,9 +3,11 @@ package com.flooring.flooringmastery.dao;
 import com.flooring.flooringmastery.model.Tax;
 import com.flooring.flooringmastery.exceptions.PersistenceException;
 import com.flooring.flooringmastery.view.UserIO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
-import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.*;
 
@@ -16,13 +18,17 @@ public class TaxDaoFileImpl implements TaxDao {
     private static final String TAX_FILE = "FileData/Data/Taxes.txt";
     private static final String DELIMITER = ",";
 
-    private final Map<String, Tax> taxes = new HashMap<>();
-    private final UserIO userIO;
+    //upper-case state abbreviation -> tax, replaced whole when Taxes.txt changes
+    private final ReferenceFileCache<Map<String, Tax>> taxes;
 
     public TaxDaoFileImpl(UserIO userIO) {
-        this.userIO = userIO;
+        this(userIO, 0);
+    }
+
+    @Autowired
+    public TaxDaoFileImpl(UserIO userIO, @Value("${flooring.reference.reload-ms:0}") long reloadMillis) {
         try{
-            loadTaxes();
+            this.taxes = new ReferenceFileCache<>(userIO, TAX_FILE, TaxDaoFileImpl::parseTaxes, reloadMillis);
         } catch (PersistenceException e) {
             throw new RuntimeException(e);
         }
@@ -30,38 +36,43 @@ public class TaxDaoFileImpl implements TaxDao {
 
     @Override
     public List<Tax> getAllTaxes() throws PersistenceException {
-        if (taxes.isEmpty()) {
-            loadTaxes();
-        }
-        return new ArrayList<>(taxes.values());
+        return new ArrayList<>(taxes.get().values());
     }
 
     @Override
     public Tax getTaxByState(String stateAbbreviation) throws PersistenceException {
-        if (taxes.isEmpty()) {
-            loadTaxes();
-        }
-        return taxes.get(stateAbbreviation.toUpperCase());
+        return taxes.get().get(stateAbbreviation.toUpperCase());
+    }
+
+    @Override
+    public long getVersion() {
+        return taxes.version();
     }
 
-    private void loadTaxes() throws PersistenceException {
-        try {
-            List<String> lines = userIO.readAllLines(TAX_FILE);
-            if (!lines.isEmpty()) lines.remove(0);
+    //checks Taxes.txt now instead of waiting for the next poll
+    public boolean reloadIfChanged() throws PersistenceException {
+        return taxes.reloadIfChanged();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        taxes.close();
+    }
 
-            for (String line : lines) {
-                String[] tokens = line.split(DELIMITER);
-                if (tokens.length < 3) continue;
+    private static Map<String, Tax> parseTaxes(List<String> lines) {
+        Map<String, Tax> parsed = new LinkedHashMap<>();
+        // skip the header
+        for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+            String[] tokens = line.split(DELIMITER);
+            if (tokens.length < 3) continue;
 
-                Tax tax = new Tax();
-                tax.setStateAbbr(tokens[0]);
-                tax.setState(tokens[1]);
-                tax.setTaxRate(new BigDecimal(tokens[2]));
+            Tax tax = new Tax();
+            tax.setStateAbbr(tokens[0]);
+            tax.setState(tokens[1]);
+            tax.setTaxRate(new BigDecimal(tokens[2]));
 
-                taxes.put(tax.getStateAbbr().toUpperCase(), tax);
-            }
-        } catch (IOException e) {
-            throw new PersistenceException("Could not load tax data from " + TAX_FILE, e);
+            parsed.put(tax.getStateAbbr().toUpperCase(), tax);
         }
+        return Collections.unmodifiableMap(parsed);
     }
 }
@@ -0,0 +1,129 @@
+package com.flooring.flooringmastery.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide timers and counters for the hot paths, looked up by name the way Micrometer's global
+ * registry is, so DAOs built with new in tests and tools need no extra constructor argument.
+ * Recording is a few LongAdder and atomic updates, no locks and no allocation. Timers keep a
+ * histogram of power-of-two nanosecond buckets, so percentiles are upper bounds within a factor of two.
+ * Callers keep the Timer or Counter in a static field instead of looking it up on every call.
+ */
+public final class Metrics {
+
+    private static final Map<String, Timer> TIMERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, Counter> COUNTERS = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, Timer::new);
+    }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, Counter::new);
+    }
+
+    /** One line per timer then per counter, sorted by name. */
+    public static List<String> report() {
+        List<String> lines = new ArrayList<>(TIMERS.size() + COUNTERS.size());
+        for (Timer timer : TIMERS.values()) {
+            if (timer.getCount() == 0) continue;
+            lines.add(String.format("%-28s count=%d mean=%s p50<=%s p99<=%s max=%s", timer.name, timer.getCount(),
+                    format(timer.getTotalNanos() / timer.getCount()), format(timer.percentile(0.50)),
+                    format(timer.percentile(0.99)), format(timer.getMaxNanos())));
+        }
+        for (Counter counter : COUNTERS.values()) {
+            lines.add(String.format("%-28s %d", counter.name, counter.get()));
+        }
+        return lines;
+    }
+
+    private static String format(long nanos) {
+        if (nanos < 1_000) return nanos + "ns";
+        if (nanos < 1_000_000) return String.format("%.1fus", nanos / 1_000.0);
+        if (nanos < 1_000_000_000) return String.format("%.1fms", nanos / 1_000_000.0);
+        return String.format("%.2fs", nanos / 1_000_000_000.0);
+    }
+
+    /** Latency of one operation: count, total, max and a log2 histogram, all in nanoseconds. */
+    public static final class Timer {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        //bucket i counts durations below 2^i ns and at least 2^(i-1)
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        /** Records the time since a System.nanoTime() taken before the operation. */
+        public void stop(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /** The upper bound of the bucket holding the given fraction of recordings, never above max. */
+        public long percentile(double fraction) {
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) total += buckets.get(i);
+            long wanted = Math.max(1, (long) Math.ceil(total * fraction));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= wanted) return Math.min(i >= 63 ? Long.MAX_VALUE : 1L << i, getMaxNanos());
+            }
+            return getMaxNanos();
+        }
+    }
+
+    /** A running total, such as bytes read or cache hits. */
+    public static final class Counter {
+        private final String name;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+}
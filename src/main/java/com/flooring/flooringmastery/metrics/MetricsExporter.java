@@ -0,0 +1,68 @@
+package com.flooring.flooringmastery.metrics;
+
+import com.flooring.flooringmastery.view.UserIO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rewrites the metrics file with the current Metrics.report every export interval and once more on
+ * shutdown, so the numbers of a finished run are left on disk. An interval of 0 only writes on shutdown.
+ */
+@Component
+public class MetricsExporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetricsExporter.class);
+
+    private final UserIO userIO;
+    private final String metricsFile;
+    private ScheduledExecutorService exporter;
+
+    @Autowired
+    public MetricsExporter(UserIO userIO,
+                           @Value("${flooring.metrics.file:FileData/Reports/Metrics.txt}") String metricsFile,
+                           @Value("${flooring.metrics.export-interval-ms:60000}") long exportIntervalMillis) {
+        this.userIO = userIO;
+        this.metricsFile = metricsFile;
+        if (exportIntervalMillis > 0) {
+            exporter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metrics-export");
+                t.setDaemon(true);
+                return t;
+            });
+            exporter.scheduleWithFixedDelay(this::exportQuietly, exportIntervalMillis, exportIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void export() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# " + Instant.now());
+        lines.addAll(Metrics.report());
+        userIO.writeLines(metricsFile, lines);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (exporter != null) exporter.shutdown();
+        exportQuietly();
+    }
+
+    private void exportQuietly() {
+        try {
+            export();
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not export metrics to {}", metricsFile, e);
+        }
+    }
+}
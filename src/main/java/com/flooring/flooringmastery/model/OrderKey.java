@@ -0,0 +1,12 @@
+package com.flooring.flooringmastery.model;
+
+import java.time.LocalDate;
+
+//where an order lives, enough for getOrder(date, orderNumber)
+public record OrderKey(LocalDate date, int orderNumber) implements Comparable<OrderKey> {
+    @Override
+    public int compareTo(OrderKey other) {
+        int byDate = date.compareTo(other.date);
+        return byDate != 0 ? byDate : Integer.compare(orderNumber, other.orderNumber);
+    }
+}
@@ -0,0 +1,75 @@
+package com.flooring.flooringmastery.model;
+
+import java.math.BigDecimal;
+
+/** Immutable running totals over a set of orders: how many, and the sums of their area and money columns. */
+public final class SalesTotals {
+
+    public static final SalesTotals EMPTY = new SalesTotals(0, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO,
+            BigDecimal.ZERO, BigDecimal.ZERO);
+
+    private final long count;
+    private final BigDecimal area;
+    private final BigDecimal materialCost;
+    private final BigDecimal laborCost;
+    private final BigDecimal tax;
+    private final BigDecimal total;
+
+    public SalesTotals(long count, BigDecimal area, BigDecimal materialCost, BigDecimal laborCost,
+                       BigDecimal tax, BigDecimal total) {
+        this.count = count;
+        this.area = area;
+        this.materialCost = materialCost;
+        this.laborCost = laborCost;
+        this.tax = tax;
+        this.total = total;
+    }
+
+    //the totals with one order added (sign 1) or taken out (sign -1), missing values count as zero
+    public SalesTotals plus(Order order, int sign) {
+        return new SalesTotals(count + sign,
+                add(area, order.getArea(), sign),
+                add(materialCost, order.getMaterialCost(), sign),
+                add(laborCost, order.getLaborCost(), sign),
+                add(tax, order.getTax(), sign),
+                add(total, order.getTotal(), sign));
+    }
+
+    public SalesTotals plus(SalesTotals other) {
+        return new SalesTotals(count + other.count, area.add(other.area), materialCost.add(other.materialCost),
+                laborCost.add(other.laborCost), tax.add(other.tax), total.add(other.total));
+    }
+
+    private static BigDecimal add(BigDecimal sum, BigDecimal value, int sign) {
+        if (value == null) return sum;
+        return sign > 0 ? sum.add(value) : sum.subtract(value);
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public BigDecimal getArea() {
+        return area;
+    }
+
+    public BigDecimal getMaterialCost() {
+        return materialCost;
+    }
+
+    public BigDecimal getLaborCost() {
+        return laborCost;
+    }
+
+    public BigDecimal getTax() {
+        return tax;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+}
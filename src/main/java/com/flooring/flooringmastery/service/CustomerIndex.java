@@ -0,0 +1,129 @@
+package com.flooring.flooringmastery.service;
+
+import com.flooring.flooringmastery.dao.OrderDao;
+import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.model.OrderKey;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * In-memory prefix index from customer names to the orders that carry them.
+ * Names are lower-cased and every word of a name is inserted into a trie, so "smi" finds both
+ * "Smith" and "Anna Smithers". A search walks the prefix then collects the order keys below it,
+ * which costs the length of the prefix plus the size of the answer, never the number of dates.
+ * Built with one scan of the orders on first use, then kept up to date by the service on every
+ * add, edit and remove. Orders changed on disk by other tools are picked up by rebuild.
+ */
+public class CustomerIndex {
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        //orders with a name word that ends exactly here
+        private final Set<OrderKey> orders = new HashSet<>();
+    }
+
+    private final OrderDao orderDao;
+    private Node root;
+
+    public CustomerIndex(OrderDao orderDao) {
+        this.orderDao = orderDao;
+    }
+
+    /** Every order with a customer name word starting with the prefix, ignoring case, oldest first. */
+    public synchronized List<OrderKey> find(String prefix) throws PersistenceException {
+        ensureBuilt();
+        String folded = prefix == null ? "" : prefix.trim().toLowerCase();
+        if (folded.isEmpty()) return List.of();
+
+        Node node = root;
+        for (int i = 0; i < folded.length() && node != null; i++) {
+            node = node.children.get(folded.charAt(i));
+        }
+        if (node == null) return List.of();
+
+        // a name with two matching words is reached twice, the set keeps it once
+        Set<OrderKey> found = new TreeSet<>();
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(node);
+        while (!pending.isEmpty()) {
+            Node next = pending.pop();
+            found.addAll(next.orders);
+            next.children.values().forEach(pending::push);
+        }
+        return new ArrayList<>(found);
+    }
+
+    public synchronized void add(LocalDate date, Order order) {
+        if (root == null) return; // built from the DAO, which already has this order, on first search
+        for (String word : words(order.getCustomerName())) insert(word, new OrderKey(date, order.getOrderNumber()));
+    }
+
+    public synchronized void remove(LocalDate date, Order order) {
+        if (root == null) return;
+        for (String word : words(order.getCustomerName())) delete(word, new OrderKey(date, order.getOrderNumber()));
+    }
+
+    public synchronized void replace(LocalDate date, Order previous, Order current) {
+        if (Objects.equals(previous.getCustomerName(), current.getCustomerName())
+                && previous.getOrderNumber() == current.getOrderNumber()) return;
+        remove(date, previous);
+        add(date, current);
+    }
+
+    //drops the index, the next search scans the orders again
+    public synchronized void rebuild() {
+        root = null;
+    }
+
+    private void ensureBuilt() throws PersistenceException {
+        if (root != null) return;
+        Node built = new Node();
+        root = built;
+        try {
+            orderDao.forEachOrder(order -> {
+                if (order.getOrderDate() == null) return;
+                OrderKey key = new OrderKey(order.getOrderDate(), order.getOrderNumber());
+                for (String word : words(order.getCustomerName())) insert(word, key);
+            });
+        } catch (PersistenceException | RuntimeException e) {
+            root = null;
+            throw e;
+        }
+    }
+
+    private void insert(String word, OrderKey key) {
+        Node node = root;
+        for (int i = 0; i < word.length(); i++) {
+            node = node.children.computeIfAbsent(word.charAt(i), c -> new Node());
+        }
+        node.orders.add(key);
+    }
+
+    //removes the key and prunes nodes left with nothing below them
+    private void delete(String word, OrderKey key) {
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        for (int i = 0; i < word.length() && node != null; i++) {
+            path.push(node);
+            node = node.children.get(word.charAt(i));
+        }
+        if (node == null || !node.orders.remove(key)) return;
+        for (int i = word.length() - 1; i >= 0 && node.orders.isEmpty() && node.children.isEmpty(); i--) {
+            Node parent = path.pop();
+            parent.children.remove(word.charAt(i));
+            node = parent;
+        }
+    }
+
+    //lower-case words of a name, split on anything that is not a letter
+    private static Set<String> words(String name) {
+        Set<String> words = new LinkedHashSet<>();
+        if (name == null) return words;
+        for (String word : name.toLowerCase().split("[^\\p{L}]+")) {
+            if (!word.isEmpty()) words.add(word);
+        }
+        return words;
+    }
+}
@@ -0,0 +1,32 @@
+package com.flooring.flooringmastery.service;
+
+import com.flooring.flooringmastery.model.Order;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Outcome of a bulk add: the orders that were stored and the reason each rejected row was not. */
+public class ImportReport {
+    private final List<Order> added = new ArrayList<>();
+    //row number -> reason, in row order
+    private final Map<Integer, String> errors = new TreeMap<>();
+
+    void addAdded(List<Order> orders) {
+        added.addAll(orders);
+    }
+
+    void addError(int row, String message) {
+        errors.put(row, message);
+    }
+
+    public List<Order> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    public Map<Integer, String> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+}
@@ -0,0 +1,178 @@
+package com.flooring.flooringmastery.service;
+
+import com.flooring.flooringmastery.dao.ProductDao;
+import com.flooring.flooringmastery.dao.TaxDao;
+import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.metrics.Metrics;
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.model.Product;
+import com.flooring.flooringmastery.model.Tax;
+
+import java.math.BigDecimal;
+
+/**
+ * Prices orders from the immutable product x state table in the current ReferenceData snapshot.
+ * Each cell keeps the per square foot material, labor, tax and total factors as scaled longs, so
+ * pricing an order is four long multiplies by the area instead of BigDecimal arithmetic.
+ *
+ * Rounding: none. Every factor is exact at its own scale and every product is exact, so the
+ * results equal priceWithBigDecimal in value and in scale (material at area+cost scale, tax and
+ * total at area+cost+rate/100 scale) and the stored csv text does not change.
+ * Whenever that cannot be kept in a long (negative scales, Math.multiplyExact overflow) or the
+ * order carries rates that differ from the table, the order is priced with BigDecimal instead.
+ */
+public class PricingEngine {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final long[] POWERS_OF_TEN = new long[19];
+    //every calculateOrder, add, edit, import and reprice prices through here
+    private static final Metrics.Timer PRICE_TIMER = Metrics.timer("service.calculate-order");
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    private final ProductDao productDao;
+    private final TaxDao taxDao;
+    private volatile ReferenceData data;
+
+    public PricingEngine(ProductDao productDao, TaxDao taxDao) {
+        this.productDao = productDao;
+        this.taxDao = taxDao;
+    }
+
+    /** The product and tax rates for one pair, null if either is unknown. */
+    public Rates lookup(String productType, String state) throws PersistenceException {
+        return referenceData().lookup(productType, state);
+    }
+
+    /** Fills in material, labor, tax and total from the order's area and rates. */
+    public void price(Order order) throws PersistenceException {
+        price(order, order.getProductType() == null || order.getState() == null
+                ? null : referenceData().lookup(order.getProductType(), order.getState()));
+    }
+
+    /** Same as price(Order) with the rates already looked up in a snapshot, null prices with BigDecimal. */
+    public void price(Order order, Rates rates) {
+        long start = System.nanoTime();
+        if (rates == null || !rates.fast
+                || !rates.costPerSquareFoot.equals(order.getCostPerSquareFoot())
+                || !rates.laborCostPerSquareFoot.equals(order.getLaborCostPerSquareFoot())
+                || !rates.taxRate.equals(order.getTaxRate())
+                || !priceFixedPoint(order, rates)) {
+            priceWithBigDecimal(order);
+        }
+        PRICE_TIMER.stop(start);
+    }
+
+    //drops the snapshot so the next call reads the DAOs again
+    public void refresh() {
+        data = null;
+    }
+
+    /** The reference calculation the table has to agree with. */
+    public static void priceWithBigDecimal(Order order) {
+        order.setLaborCost(order.getLaborCostPerSquareFoot().multiply(order.getArea()));
+        order.setMaterialCost(order.getCostPerSquareFoot().multiply(order.getArea()));
+        BigDecimal totalCost = (order.getMaterialCost().add(order.getLaborCost()));
+        order.setTax(totalCost.multiply((order.getTaxRate().divide(HUNDRED))));
+        order.setTotal(totalCost.add(order.getTax()));
+    }
+
+    //false when the area does not fit, nothing on the order is changed then
+    private boolean priceFixedPoint(Order order, Rates rates) {
+        BigDecimal area = order.getArea();
+        if (area.scale() < 0 || area.precision() > 18) return false;
+        long a = area.unscaledValue().longValue();
+        int scale = area.scale();
+        try {
+            long material = Math.multiplyExact(a, rates.materialFactor);
+            long labor = Math.multiplyExact(a, rates.laborFactor);
+            long tax = Math.multiplyExact(a, rates.taxFactor);
+            long total = Math.multiplyExact(a, rates.totalFactor);
+            order.setMaterialCost(BigDecimal.valueOf(material, scale + rates.materialScale));
+            order.setLaborCost(BigDecimal.valueOf(labor, scale + rates.laborScale));
+            order.setTax(BigDecimal.valueOf(tax, scale + rates.taxScale));
+            order.setTotal(BigDecimal.valueOf(total, scale + rates.taxScale));
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    /** The current snapshot, rebuilt when the product or tax DAO has reloaded its file since the last call. */
+    public ReferenceData referenceData() throws PersistenceException {
+        ReferenceData current = data;
+        long productVersion = productDao.getVersion();
+        long taxVersion = taxDao.getVersion();
+        if (current == null || !current.isCurrent(productVersion, taxVersion)) {
+            current = new ReferenceData(productDao.getAllProducts(), taxDao.getAllTaxes(), productVersion, taxVersion);
+            data = current;
+        }
+        return current;
+    }
+
+    /** One product x state cell, the BigDecimal rates plus the factors per square foot as scaled longs. */
+    public static final class Rates {
+        private final Product product;
+        private final Tax tax;
+        private final BigDecimal costPerSquareFoot;
+        private final BigDecimal laborCostPerSquareFoot;
+        private final BigDecimal taxRate;
+        //false when a factor does not fit a long, every order for the cell then uses BigDecimal
+        private final boolean fast;
+        private long materialFactor;
+        private long laborFactor;
+        private long taxFactor;
+        private long totalFactor;
+        private int materialScale;
+        private int laborScale;
+        private int taxScale;
+
+        Rates(Product product, Tax tax) {
+            this.product = product;
+            this.tax = tax;
+            this.costPerSquareFoot = product.getCostPerSquareFoot();
+            this.laborCostPerSquareFoot = product.getLaborCostPerSquareFoot();
+            this.taxRate = tax.getTaxRate();
+            this.fast = precompute();
+        }
+
+        private boolean precompute() {
+            if (costPerSquareFoot == null || laborCostPerSquareFoot == null || taxRate == null) return false;
+            // the same rate / 100 the BigDecimal path multiplies by, so the scale matches too
+            BigDecimal factor = taxRate.divide(HUNDRED);
+            if (costPerSquareFoot.scale() < 0 || laborCostPerSquareFoot.scale() < 0 || factor.scale() < 0) return false;
+            try {
+                materialFactor = costPerSquareFoot.unscaledValue().longValueExact();
+                laborFactor = laborCostPerSquareFoot.unscaledValue().longValueExact();
+                long rate = factor.unscaledValue().longValueExact();
+                materialScale = costPerSquareFoot.scale();
+                laborScale = laborCostPerSquareFoot.scale();
+                int costScale = Math.max(materialScale, laborScale);
+                long cost = Math.addExact(Math.multiplyExact(materialFactor, power(costScale - materialScale)),
+                        Math.multiplyExact(laborFactor, power(costScale - laborScale)));
+                taxScale = costScale + factor.scale();
+                taxFactor = Math.multiplyExact(cost, rate);
+                totalFactor = Math.addExact(Math.multiplyExact(cost, power(factor.scale())), taxFactor);
+                return true;
+            } catch (ArithmeticException e) {
+                return false;
+            }
+        }
+
+        private static long power(int exponent) {
+            if (exponent >= POWERS_OF_TEN.length) throw new ArithmeticException("10^" + exponent + " does not fit a long");
+            return POWERS_OF_TEN[exponent];
+        }
+
+        public Product getProduct() {
+            return product;
+        }
+
+        public Tax getTax() {
+            return tax;
+        }
+    }
+}
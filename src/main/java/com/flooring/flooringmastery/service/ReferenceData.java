@@ -0,0 +1,98 @@
+package com.flooring.flooringmastery.service;
+
+import com.flooring.flooringmastery.model.Product;
+import com.flooring.flooringmastery.model.Tax;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the product and tax files for validation and pricing.
+ * States and products are hashed once, so the validators are a hash lookup with no allocation
+ * for input already in the stored or folded case, and the sorted lists the menus show are built
+ * once per snapshot. PricingEngine swaps in a new snapshot when either DAO reports new data.
+ */
+public final class ReferenceData {
+
+    private final long productVersion;
+    private final long taxVersion;
+    //product type as stored and lower-case -> row of cells
+    private final Map<String, Integer> productIndex = new HashMap<>();
+    //state abbreviation as stored and upper-case -> column of cells
+    private final Map<String, Integer> stateIndex = new HashMap<>();
+    //abbreviations exactly as stored, isValidState has always been case sensitive
+    private final Set<String> stateAbbrs = new HashSet<>();
+    private final PricingEngine.Rates[][] cells;
+    private final List<String> sortedStateAbbrs;
+    private final List<String> sortedProductTypes;
+
+    ReferenceData(List<Product> products, List<Tax> taxes, long productVersion, long taxVersion) {
+        this.productVersion = productVersion;
+        this.taxVersion = taxVersion;
+        cells = new PricingEngine.Rates[products.size()][taxes.size()];
+        for (int p = 0; p < products.size(); p++) {
+            Product product = products.get(p);
+            productIndex.put(product.getProductType(), p);
+            productIndex.put(product.getProductType().toLowerCase(), p);
+            for (int s = 0; s < taxes.size(); s++) {
+                cells[p][s] = new PricingEngine.Rates(product, taxes.get(s));
+            }
+        }
+        for (int s = 0; s < taxes.size(); s++) {
+            stateIndex.put(taxes.get(s).getStateAbbr(), s);
+            stateIndex.put(taxes.get(s).getStateAbbr().toUpperCase(), s);
+            stateAbbrs.add(taxes.get(s).getStateAbbr());
+        }
+        sortedStateAbbrs = taxes.stream().map(Tax::getStateAbbr).sorted().toList();
+        // sorted by the stored name, shown lower-case
+        sortedProductTypes = products.stream().map(Product::getProductType).sorted(Comparator.naturalOrder())
+                .map(String::toLowerCase).toList();
+    }
+
+    public boolean isValidState(String stateAbbr) {
+        return stateAbbr != null && stateAbbrs.contains(stateAbbr);
+    }
+
+    public boolean isValidProduct(String productType) {
+        if (productType == null) return false;
+        // only input in neither the stored nor the lower case pays for folding
+        return productIndex.containsKey(productType) || productIndex.containsKey(productType.toLowerCase());
+    }
+
+    //same rule as the old [A-Za-z.,\- ]+ regex, checked without building a Matcher
+    public static boolean isValidName(String name) {
+        if (name == null || name.isEmpty()) return false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean allowed = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')
+                    || c == '.' || c == ',' || c == '-' || c == ' ';
+            if (!allowed) return false;
+        }
+        return true;
+    }
+
+    public List<String> getSortedStateAbbrs() {
+        return sortedStateAbbrs;
+    }
+
+    public List<String> getSortedProductTypes() {
+        return sortedProductTypes;
+    }
+
+    //product and tax cell for a pair, null if either is unknown
+    PricingEngine.Rates lookup(String productType, String state) {
+        Integer p = productIndex.get(productType);
+        if (p == null) p = productIndex.get(productType.toLowerCase());
+        Integer s = stateIndex.get(state);
+        if (s == null) s = stateIndex.get(state.toUpperCase());
+        return p == null || s == null ? null : cells[p][s];
+    }
+
+    boolean isCurrent(long productVersion, long taxVersion) {
+        return this.productVersion == productVersion && this.taxVersion == taxVersion;
+    }
+}
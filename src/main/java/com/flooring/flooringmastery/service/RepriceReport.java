@@ -0,0 +1,42 @@
+package com.flooring.flooringmastery.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Outcome of a repricing job, filled in concurrently by the per-date tasks. */
+public class RepriceReport {
+    private int ordersRepriced;
+    private int datesWritten;
+    //sum of new total minus old total over every repriced order
+    private BigDecimal totalChange = BigDecimal.ZERO;
+    private final Map<LocalDate, String> failures = new TreeMap<>();
+
+    synchronized void addDate(int orders, BigDecimal change) {
+        ordersRepriced += orders;
+        datesWritten++;
+        totalChange = totalChange.add(change);
+    }
+
+    synchronized void addFailure(LocalDate date, String message) {
+        failures.put(date, message);
+    }
+
+    public synchronized int getOrdersRepriced() {
+        return ordersRepriced;
+    }
+
+    public synchronized int getDatesWritten() {
+        return datesWritten;
+    }
+
+    public synchronized BigDecimal getTotalChange() {
+        return totalChange;
+    }
+
+    public synchronized Map<LocalDate, String> getFailures() {
+        return Collections.unmodifiableMap(new TreeMap<>(failures));
+    }
+}
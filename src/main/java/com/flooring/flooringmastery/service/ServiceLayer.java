@@ -2,21 +2,33 @@ package com.flooring.flooringmastery.service;
 import com.flooring.flooringmastery.exceptions.PersistenceException;
 import com.flooring.flooringmastery.exceptions.NoSuchOrderException;
 import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.model.OrderKey;
 import com.flooring.flooringmastery.model.Product;
+import com.flooring.flooringmastery.model.SalesTotals;
 import com.flooring.flooringmastery.model.Tax;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface ServiceLayer {
     int getNextOrderNumber();
     void addOrder(LocalDate date, Order order) throws PersistenceException;
+    //validates, numbers and stores a batch, each order keeps its own date and bad rows are reported instead of thrown
+    ImportReport addOrders(Collection<Order> orders) throws PersistenceException;
+    //bulk adds the orders in a csv of OrderDate,CustomerName,State,ProductType,Area rows
+    ImportReport importOrders(String fileName) throws PersistenceException;
     Order getOrder(LocalDate date, int orderNumber) throws PersistenceException, NoSuchOrderException;
+    Order getOrder(int orderNumber) throws PersistenceException, NoSuchOrderException;
     List<Order> getOrdersForDate(LocalDate date) throws PersistenceException;
     List<Product> getProducts();
     List<Tax> getTaxes();
-    void exportData();
+    //exports every order, returns the files the export is made of
+    List<String> exportData();
+    //exports the orders dated from..to inclusive, returns the file written
+    String exportData(LocalDate from, LocalDate to);
     boolean isValidState(String stateAbbr) throws PersistenceException;
     boolean isValidProduct(String productType) throws PersistenceException;
     boolean isValidName(String productName) throws PersistenceException;
@@ -24,5 +36,17 @@ public interface ServiceLayer {
     List<String> getAllStateAbbrs() throws PersistenceException;
     Order createOrder(LocalDate orderDate, String customerName, String state, String productType, BigDecimal area) throws PersistenceException;
     void calculateOrder(Order order) throws PersistenceException;
+    //moves orders dated today or later onto the current rates, null state or product matches any
+    RepriceReport repriceOpenOrders(String state, String productType) throws PersistenceException;
+    //running totals for the dates from..to inclusive, keyed by state, product type or date
+    Map<String, SalesTotals> getSalesByState(LocalDate from, LocalDate to) throws PersistenceException;
+    Map<String, SalesTotals> getSalesByProduct(LocalDate from, LocalDate to) throws PersistenceException;
+    Map<LocalDate, SalesTotals> getSalesByDate(LocalDate from, LocalDate to) throws PersistenceException;
+    void rebuildSalesTotals() throws PersistenceException;
+    //every order with a customer name word starting with the prefix, ignoring case, by date then number
+    List<OrderKey> findOrdersByCustomer(String namePrefix) throws PersistenceException;
+    //one line per timer and counter, as also written to the metrics file
+    List<String> getDiagnostics();
     void removeOrder(LocalDate date, int orderNumber) throws PersistenceException, NoSuchOrderException;
+    void updateOrder(LocalDate date, Order order) throws PersistenceException, NoSuchOrderException;
 }
@@ -1,9 +1,12 @@
 package com.flooring.flooringmastery.service;
 import com.flooring.flooringmastery.dao.*;
 import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.metrics.Metrics;
 import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.model.OrderKey;
 import com.flooring.flooringmastery.exceptions.NoSuchOrderException;
 import com.flooring.flooringmastery.model.Product;
+import com.flooring.flooringmastery.model.SalesTotals;
 import com.flooring.flooringmastery.model.Tax;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -11,28 +14,43 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.math.BigDecimal;
-import java.util.stream.Collectors;
 
 @Service
 public class ServiceLayerImpl implements ServiceLayer {
+    private static final Metrics.Timer EXPORT_ALL_TIMER = Metrics.timer("service.export-all");
+    private static final Metrics.Timer EXPORT_RANGE_TIMER = Metrics.timer("service.export-range");
+    private static final BigDecimal MIN_AREA = BigDecimal.valueOf(100);
+
     private AuditDao auditDao;
     private ExportDao exportDao;
+    private ImportDao importDao;
+    private SalesDao salesDao;
     private OrderDao orderDao;
     private ProductDao productDao;
     private TaxDao taxDao;
+    private PricingEngine pricing;
+    private CustomerIndex customers;
 
     @Autowired
     public ServiceLayerImpl(OrderDao orderDao,
                             ProductDao productDao,
                             TaxDao taxDao,
                             AuditDao auditDao,
-                            ExportDao exportDao) {
+                            ExportDao exportDao,
+                            ImportDao importDao,
+                            SalesDao salesDao) {
         this.orderDao = orderDao;
         this.productDao = productDao;
         this.taxDao = taxDao;
         this.auditDao = auditDao;
         this.exportDao = exportDao;
+        this.importDao = importDao;
+        this.salesDao = salesDao;
+        this.pricing = new PricingEngine(productDao, taxDao);
+        this.customers = new CustomerIndex(orderDao);
     }
 
     @Override
@@ -46,6 +64,224 @@ public class ServiceLayerImpl implements ServiceLayer {
     }
 
     public void addOrder(LocalDate date, Order order) throws PersistenceException {
+        validateAndCalculate(date, order);
+
+        // Save via DAO
+        orderDao.addOrder(date, order);
+        salesDao.recordAdded(date, order);
+        customers.add(date, order);
+        auditDao.writeAuditEntry("Order #" + order.getOrderNumber() + " added for date " + date);
+   }
+
+    @Override
+    public void updateOrder(LocalDate date, Order order) throws PersistenceException, NoSuchOrderException {
+        validateAndCalculate(date, order);
+
+        // One in-place write instead of remove followed by add
+        Order previous = orderDao.updateOrder(date, order);
+        if (previous == null) {
+            throw new NoSuchOrderException("Order " + order.getOrderNumber() + " not found on " + date);
+        }
+        salesDao.recordReplaced(date, previous, order);
+        customers.replace(date, previous, order);
+        auditDao.writeAuditEntry("Order #" + order.getOrderNumber() + " updated for date " + date);
+    }
+
+    /**
+     * Adds a batch in one pass: every order is checked and priced against one copy of the state and
+     * product lists, the valid ones get a contiguous block of new order numbers in input order and
+     * each affected date is stored with a single write. Rows are numbered from 1 in input order;
+     * a bad row or a date that fails to save is reported and the rest of the batch still goes in.
+     */
+    @Override
+    public ImportReport addOrders(Collection<Order> orders) throws PersistenceException {
+        List<Integer> rows = new ArrayList<>(orders.size());
+        for (int row = 1; row <= orders.size(); row++) rows.add(row);
+        return addOrders(new ArrayList<>(orders), rows);
+    }
+
+    //reads the quoting system's csv, parse errors and batch errors are both reported by line number
+    @Override
+    public ImportReport importOrders(String fileName) throws PersistenceException {
+        Map<Integer, String> parseErrors = new TreeMap<>();
+        Map<Integer, Order> parsed = importDao.readOrders(fileName, parseErrors);
+        ImportReport report = addOrders(new ArrayList<>(parsed.values()), new ArrayList<>(parsed.keySet()));
+        parseErrors.forEach(report::addError);
+        return report;
+    }
+
+    private ImportReport addOrders(List<Order> orders, List<Integer> rows) throws PersistenceException {
+        ImportReport report = new ImportReport();
+        // one snapshot for the whole batch, even if the rate files reload meanwhile
+        ReferenceData reference = pricing.referenceData();
+
+        List<Order> valid = new ArrayList<>(orders.size());
+        List<Integer> validRows = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            try {
+                validateAndCalculate(order == null ? null : order.getOrderDate(), order, reference);
+                valid.add(order);
+                validRows.add(rows.get(i));
+            } catch (PersistenceException e) {
+                report.addError(rows.get(i), e.getMessage());
+            }
+        }
+        if (valid.isEmpty()) return report;
+
+        int next = orderDao.allocateOrderNumbers(valid.size());
+        Map<LocalDate, List<Integer>> byDate = new TreeMap<>();
+        for (int i = 0; i < valid.size(); i++) {
+            valid.get(i).setOrderNumber(next++);
+            byDate.computeIfAbsent(valid.get(i).getOrderDate(), d -> new ArrayList<>()).add(i);
+        }
+
+        for (Map.Entry<LocalDate, List<Integer>> date : byDate.entrySet()) {
+            List<Order> dayOrders = new ArrayList<>(date.getValue().size());
+            for (int i : date.getValue()) dayOrders.add(valid.get(i));
+            try {
+                orderDao.addOrders(date.getKey(), dayOrders);
+                report.addAdded(dayOrders);
+                for (Order order : dayOrders) {
+                    salesDao.recordAdded(date.getKey(), order);
+                    customers.add(date.getKey(), order);
+                }
+            } catch (PersistenceException e) {
+                for (int i : date.getValue()) {
+                    report.addError(validRows.get(i), "Could not save orders for " + date.getKey() + ": " + e.getMessage());
+                }
+            }
+        }
+        auditDao.writeAuditEntry(report.getAdded().size() + " orders added in bulk, " + report.getErrors().size() + " rejected");
+        return report;
+    }
+
+    /**
+     * Moves open orders (dated today or later) onto the current product and tax rates. Only orders
+     * for the given state and/or product are looked at, null matches any. Dates are repriced in
+     * parallel on a fork-join pool, each date reads its orders once and writes the changed ones
+     * back with a single computeOnDate call that holds the date against other writers.
+     * A date that fails is reported and the others still go in.
+     */
+    @Override
+    public RepriceReport repriceOpenOrders(String state, String productType) throws PersistenceException {
+        ReferenceData reference = pricing.referenceData();
+        LocalDate today = LocalDate.now();
+        List<LocalDate> dates = orderDao.getOrderDates().stream().filter(d -> !d.isBefore(today)).toList();
+        RepriceReport report = new RepriceReport();
+        if (dates.isEmpty()) return report;
+
+        ForkJoinPool pool = new ForkJoinPool(Math.min(dates.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(dates.size());
+            for (LocalDate date : dates) {
+                tasks.add(pool.submit(() -> repriceDate(date, state, productType, reference, report)));
+            }
+            tasks.forEach(ForkJoinTask::join);
+        } finally {
+            pool.shutdown();
+        }
+        auditDao.writeAuditEntry(report.getOrdersRepriced() + " open orders repriced for state " + (state == null ? "any" : state)
+                + " and product " + (productType == null ? "any" : productType) + ", total change " + report.getTotalChange());
+        return report;
+    }
+
+    private void repriceDate(LocalDate date, String state, String productType, ReferenceData reference, RepriceReport report) {
+        try {
+            List<Order> previous = new ArrayList<>();
+            // read, recompute and write back in one step on the DAO, so an edit or removal
+            // made on this date meanwhile is neither overwritten nor brought back
+            List<Order> changed = orderDao.computeOnDate(date, orders -> {
+                previous.clear();
+                List<Order> repricedOrders = new ArrayList<>();
+                for (Order stored : orders) {
+                    Order repriced = reprice(stored, state, productType, reference);
+                    if (repriced == null) continue;
+                    repricedOrders.add(repriced);
+                    previous.add(stored);
+                }
+                return repricedOrders;
+            });
+            if (changed.isEmpty()) return;
+            BigDecimal change = BigDecimal.ZERO;
+            for (int i = 0; i < changed.size(); i++) {
+                Order stored = previous.get(i);
+                change = change.add(changed.get(i).getTotal().subtract(stored.getTotal() == null ? BigDecimal.ZERO : stored.getTotal()));
+                salesDao.recordReplaced(date, stored, changed.get(i));
+            }
+            report.addDate(changed.size(), change);
+        } catch (PersistenceException | RuntimeException e) {
+            report.addFailure(date, e.getMessage());
+        }
+    }
+
+    //the order on the current rates, null when it is filtered out or nothing about its price changes
+    private Order reprice(Order stored, String state, String productType, ReferenceData reference) {
+        if (state != null && !state.equalsIgnoreCase(stored.getState())) return null;
+        if (productType != null && !productType.equalsIgnoreCase(stored.getProductType())) return null;
+        if (stored.getState() == null || stored.getProductType() == null || stored.getArea() == null) return null;
+        // product or state no longer in the files, nothing to move it to
+        PricingEngine.Rates rates = reference.lookup(stored.getProductType(), stored.getState());
+        if (rates == null) return null;
+
+        Order repriced = new Order(stored);
+        repriced.setCostPerSquareFoot(rates.getProduct().getCostPerSquareFoot());
+        repriced.setLaborCostPerSquareFoot(rates.getProduct().getLaborCostPerSquareFoot());
+        repriced.setTaxRate(rates.getTax().getTaxRate());
+        pricing.price(repriced, rates);
+
+        BigDecimal oldTotal = stored.getTotal() == null ? BigDecimal.ZERO : stored.getTotal();
+        if (repriced.getTotal().compareTo(oldTotal) != 0
+                || !repriced.getCostPerSquareFoot().equals(stored.getCostPerSquareFoot())
+                || !repriced.getLaborCostPerSquareFoot().equals(stored.getLaborCostPerSquareFoot())
+                || !repriced.getTaxRate().equals(stored.getTaxRate())) {
+            return repriced;
+        }
+        return null;
+    }
+
+    //read from the running totals, orders are only scanned the first time or after a reload from disk
+    @Override
+    public Map<String, SalesTotals> getSalesByState(LocalDate from, LocalDate to) throws PersistenceException {
+        return salesDao.getTotalsByState(from, to);
+    }
+
+    @Override
+    public Map<String, SalesTotals> getSalesByProduct(LocalDate from, LocalDate to) throws PersistenceException {
+        return salesDao.getTotalsByProduct(from, to);
+    }
+
+    @Override
+    public Map<LocalDate, SalesTotals> getSalesByDate(LocalDate from, LocalDate to) throws PersistenceException {
+        return salesDao.getTotalsByDate(from, to);
+    }
+
+    //recovers totals after the order files were changed outside the app
+    @Override
+    public void rebuildSalesTotals() throws PersistenceException {
+        salesDao.rebuild(orderDao);
+        customers.rebuild();
+        auditDao.writeAuditEntry("Sales totals rebuilt");
+    }
+
+    //latency, row, byte and cache figures recorded since startup
+    @Override
+    public List<String> getDiagnostics() {
+        return Metrics.report();
+    }
+
+    //answered from the in-memory name index, the first call builds it with one scan of the orders
+    @Override
+    public List<OrderKey> findOrdersByCustomer(String namePrefix) throws PersistenceException {
+        return customers.find(namePrefix);
+    }
+
+    //shared checks for add and update, fills in missing rates and recalculates totals
+    private void validateAndCalculate(LocalDate date, Order order) throws PersistenceException {
+        validateAndCalculate(date, order, pricing.referenceData());
+    }
+
+    private void validateAndCalculate(LocalDate date, Order order, ReferenceData reference) throws PersistenceException {
         // Basic validation of required fields
         if (order == null) {
             throw new PersistenceException("Order cannot be null");
@@ -59,73 +295,53 @@ public class ServiceLayerImpl implements ServiceLayer {
         if (order.getCustomerName() == null || order.getCustomerName().trim().isEmpty()) {
             throw new PersistenceException("Customer name is required");
         }
-        if (!isValidName(order.getCustomerName())) {
+        if (!ReferenceData.isValidName(order.getCustomerName())) {
             throw new PersistenceException("Customer name is invalid");
         }
         if (order.getState() == null || order.getState().trim().isEmpty()) {
             throw new PersistenceException("State is required");
         }
-        if (!isValidState(order.getState())) {
+        if (!reference.isValidState(order.getState())) {
             throw new PersistenceException("State is invalid or unsupported");
         }
         if (order.getProductType() == null || order.getProductType().trim().isEmpty()) {
             throw new PersistenceException("Product type is required");
         }
-        if (!isValidProduct(order.getProductType())) {
+        if (!reference.isValidProduct(order.getProductType())) {
             throw new PersistenceException("Product type is invalid or unsupported");
         }
-        if (order.getArea() == null || order.getArea().compareTo(new BigDecimal("100")) < 0) {
+        if (order.getArea() == null || order.getArea().compareTo(MIN_AREA) < 0) {
             throw new PersistenceException("Area is required and must be at least 100");
         }
 
-        // Ensure cost/tax fields are populated; if missing, try to refill from DAOs and recalculate
-        try {
-            if (order.getCostPerSquareFoot() == null || order.getLaborCostPerSquareFoot() == null) {
-                Product p = productDao.getProductByType(order.getProductType());
-                if (p == null) throw new PersistenceException("Product data not found for type: " + order.getProductType());
-                order.setCostPerSquareFoot(p.getCostPerSquareFoot());
-                order.setLaborCostPerSquareFoot(p.getLaborCostPerSquareFoot());
-            }
-            if (order.getTaxRate() == null) {
-                Tax t = taxDao.getTaxByState(order.getState());
-                if (t == null) throw new PersistenceException("Tax data not found for state: " + order.getState());
-                order.setTaxRate(t.getTaxRate());
-            }
-        } catch (PersistenceException e) {
-            throw e;
+        // missing rates are filled in from the same snapshot the checks above used, then priced from it
+        PricingEngine.Rates rates = reference.lookup(order.getProductType(), order.getState());
+        if (rates == null) {
+            throw new PersistenceException("No rates for product " + order.getProductType() + " in state " + order.getState());
+        }
+        if (order.getCostPerSquareFoot() == null || order.getLaborCostPerSquareFoot() == null) {
+            order.setCostPerSquareFoot(rates.getProduct().getCostPerSquareFoot());
+            order.setLaborCostPerSquareFoot(rates.getProduct().getLaborCostPerSquareFoot());
+        }
+        if (order.getTaxRate() == null) {
+            order.setTaxRate(rates.getTax().getTaxRate());
         }
 
         // Calculate derived fields (material,labor,tax,total)
-        calculateOrder(order);
-
-        // Save via DAO
-        orderDao.addOrder(date, order);
-   }
+        pricing.price(order, rates);
+    }
 
-   public boolean isValidProduct(String productType) throws PersistenceException {
-        if(productType == null) {
-            return false;
-        }
-        List<String> knownTypes=getAllProductTypes();
-       return knownTypes.contains(productType.toLowerCase());
-   }
+    //O(1) lookups in the current reference snapshot, nothing is rebuilt per call
+    public boolean isValidProduct(String productType) throws PersistenceException {
+        return pricing.referenceData().isValidProduct(productType);
+    }
     public boolean isValidState(String stateAbbr) throws PersistenceException {
-        if (stateAbbr == null) {
-            return false;
-        }
-        List<String> states=getAllStateAbbrs();
-        return states.contains(stateAbbr);
+        return pricing.referenceData().isValidState(stateAbbr);
     }
-    
-    //get List of every state Abbr
+
+    //get List of every state Abbr, sorted once per snapshot
     public List<String> getAllStateAbbrs() throws PersistenceException{
-        List<String> states=new ArrayList<>();
-        List<Tax> taxes=taxDao.getAllTaxes();
-        states=taxes.stream()
-                .map(Tax::getStateAbbr)
-                .sorted()
-                .collect(Collectors.toList());
-        return states;
+        return pricing.referenceData().getSortedStateAbbrs();
     }
 
     //get list of every product types to check if valid adn display all options for user
@@ -133,30 +349,22 @@ public class ServiceLayerImpl implements ServiceLayer {
         if (productDao == null) {
             return null;
         }
-        List<String> productTypes=new ArrayList<>();
-        List<Product>products=productDao.getAllProducts();
-        productTypes=products.stream()
-                .map(Product::getProductType)
-                .sorted()
-                .map(String::toLowerCase)
-                .collect(Collectors.toList());
-        return productTypes;
+        return pricing.referenceData().getSortedProductTypes();
     }
 
     @Override
     public Order createOrder(LocalDate orderDate, String customerName, String state, String productType, BigDecimal area) throws PersistenceException {
 
-        //Get tax Info for order
-        Tax taxInfo = taxDao.getTaxByState(state);
-        if(taxInfo == null) {
-            throw new IllegalArgumentException("State not found in Tax data: " + state);
-        }
-
-        //Get Product Info
-        Product productInfo = productDao.getProductByType(productType);
-        if(productInfo == null) {
+        //Get product and tax info for order from the precomputed rate table
+        PricingEngine.Rates rates = pricing.lookup(productType, state);
+        if(rates == null) {
+            if (taxDao.getTaxByState(state) == null) {
+                throw new IllegalArgumentException("State not found in Tax data: " + state);
+            }
             throw new IllegalArgumentException("Product type not found in Product data: " + productType);
         }
+        Tax taxInfo = rates.getTax();
+        Product productInfo = rates.getProduct();
 
         //Create Order Object
         Order order = new Order();
@@ -174,16 +382,11 @@ public class ServiceLayerImpl implements ServiceLayer {
         calculateOrder(order);
         return order;
     }
-    public void calculateOrder(Order order){
-        order.setLaborCost(order.getLaborCostPerSquareFoot().multiply(order.getArea()));
-        order.setMaterialCost(order.getCostPerSquareFoot().multiply(order.getArea()));
-        BigDecimal totalCost = (order.getMaterialCost().add(order.getLaborCost()));
-        order.setTax(totalCost.multiply((order.getTaxRate().divide(BigDecimal.valueOf(100)))));
-        order.setTotal(totalCost.add(order.getTax()));
+    public void calculateOrder(Order order) throws PersistenceException {
+        pricing.price(order);
     }
     public boolean isValidName(String name){
-        return name.matches("[A-Za-z.,\\- ]+");
-
+        return ReferenceData.isValidName(name);
     }
 
     public Order getOrder(LocalDate date, int orderNumber) throws PersistenceException, NoSuchOrderException {
@@ -193,12 +396,22 @@ public class ServiceLayerImpl implements ServiceLayer {
         }
         return o;
     }
+    //lookup through the dao's order number index, no date needed
+    public Order getOrder(int orderNumber) throws PersistenceException, NoSuchOrderException {
+        Order o = orderDao.getOrder(orderNumber);
+        if (o == null) {
+            throw new NoSuchOrderException("Order " + orderNumber + " not found");
+        }
+        return o;
+    }
     @Override
     public void removeOrder(LocalDate date, int orderNumber) throws PersistenceException, NoSuchOrderException {
         Order removed = orderDao.removeOrder(date, orderNumber);
         if (removed == null) {
             throw new NoSuchOrderException("Order " + orderNumber + " not found on " + date);
         }
+        salesDao.recordRemoved(date, removed);
+        customers.remove(date, removed);
         auditDao.writeAuditEntry("Order #" + orderNumber + " removed for date " + date);
     }
 
@@ -207,18 +420,34 @@ public class ServiceLayerImpl implements ServiceLayer {
     }
     public List<Product> getProducts() { return null; }
     public List<Tax> getTaxes() { return null; }
-    public void exportData() {
+    public List<String> exportData() {
+        long start = System.nanoTime();
         try {
-            List<Order> all = orderDao.getAllOrders();
-            Map<LocalDate, Map<Integer, Order>> map = new TreeMap<>();
-            for (Order o : all) {
-                LocalDate d = o.getOrderDate();
-                if (d == null) continue;
-                map.computeIfAbsent(d, k -> new TreeMap<>()).put(o.getOrderNumber(), o);
-            }
-            exportDao.exportData(map);
+            // streamed date by date, the full history is never held in memory
+            List<String> files = exportDao.exportData(orderDao);
+            auditDao.writeAuditEntry("All orders exported to " + String.join(", ", files));
+            return files;
+        } catch (PersistenceException e) {
+            throw new RuntimeException("Failed to export data: " + e.getMessage(), e);
+        } finally {
+            EXPORT_ALL_TIMER.stop(start);
+        }
+    }
+
+    @Override
+    public String exportData(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date " + from + " is after end date " + to);
+        }
+        long start = System.nanoTime();
+        try {
+            String file = exportDao.exportData(orderDao, from, to);
+            auditDao.writeAuditEntry("Orders from " + from + " to " + to + " exported to " + file);
+            return file;
         } catch (PersistenceException e) {
             throw new RuntimeException("Failed to export data: " + e.getMessage(), e);
+        } finally {
+            EXPORT_RANGE_TIMER.stop(start);
         }
     }
 }
@@ -3,6 +3,10 @@ package com.flooring.flooringmastery.view;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
@@ -21,9 +25,22 @@ public interface UserIO {
     String readStringAllowEmpty(String prompt);
 
     // File I/O helpers (paths are relative to project root)
+    // writeLines replaces the file atomically, readers see either the old or the new contents
     List<String> readAllLines(String path) throws IOException;
+    Reader newReader(String path) throws IOException;
     void writeLines(String path, List<String> lines) throws IOException;
+    void appendLines(String path, List<String> lines) throws IOException;
+    // raw streams for callers that buffer or compress themselves, pair newOutputStream with move to publish atomically
+    InputStream newInputStream(String path) throws IOException;
+    OutputStream newOutputStream(String path) throws IOException;
+    //append-only channel for writers that need to force data to disk
+    FileChannel newAppendChannel(String path) throws IOException;
+    void move(String fromPath, String toPath) throws IOException;
+    byte[] readAllBytes(String path) throws IOException;
+    void writeBytes(String path, byte[] data) throws IOException;
     boolean exists(String path) throws IOException;
+    // size and modification time, changes whenever the file is rewritten, null if there is no file
+    String fileStamp(String path) throws IOException;
     void deleteIfExists(String path) throws IOException;
     void createDirectories(String dirPath) throws IOException;
 
@@ -6,9 +6,21 @@ import java.util.Scanner;
 import java.util.List;
 import java.util.ArrayList;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.stereotype.Component;
 
@@ -134,11 +146,75 @@ public class UserIOConsoleImpl implements UserIO {
         return Files.readAllLines(p);
     }
 
+    @Override
+    public Reader newReader(String path) throws IOException {
+        // unbuffered, callers stream through their own buffer
+        return new InputStreamReader(Files.newInputStream(Paths.get(path)), StandardCharsets.UTF_8);
+    }
+
     @Override
     public void writeLines(String path, List<String> lines) throws IOException {
         Path p = Paths.get(path);
         if (p.getParent() != null) Files.createDirectories(p.getParent());
-        Files.write(p, lines);
+
+        // write next to the target then rename, so a crash never leaves a half-written file
+        Path temp = Paths.get(path + ".tmp");
+        Files.write(temp, lines);
+        replace(temp, p);
+    }
+
+    @Override
+    public byte[] readAllBytes(String path) throws IOException {
+        return Files.readAllBytes(Paths.get(path));
+    }
+
+    @Override
+    public void writeBytes(String path, byte[] data) throws IOException {
+        Path p = Paths.get(path);
+        if (p.getParent() != null) Files.createDirectories(p.getParent());
+
+        Path temp = Paths.get(path + ".tmp");
+        Files.write(temp, data);
+        replace(temp, p);
+    }
+
+    @Override
+    public InputStream newInputStream(String path) throws IOException {
+        return Files.newInputStream(Paths.get(path));
+    }
+
+    @Override
+    public OutputStream newOutputStream(String path) throws IOException {
+        Path p = Paths.get(path);
+        if (p.getParent() != null) Files.createDirectories(p.getParent());
+        return Files.newOutputStream(p);
+    }
+
+    @Override
+    public FileChannel newAppendChannel(String path) throws IOException {
+        Path p = Paths.get(path);
+        if (p.getParent() != null) Files.createDirectories(p.getParent());
+        return FileChannel.open(p, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void move(String fromPath, String toPath) throws IOException {
+        replace(Paths.get(fromPath), Paths.get(toPath));
+    }
+
+    private void replace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public void appendLines(String path, List<String> lines) throws IOException {
+        Path p = Paths.get(path);
+        if (p.getParent() != null) Files.createDirectories(p.getParent());
+        Files.write(p, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
     }
 
     @Override
@@ -146,6 +222,16 @@ public class UserIOConsoleImpl implements UserIO {
         return Files.exists(Paths.get(path));
     }
 
+    @Override
+    public String fileStamp(String path) throws IOException {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+            return attrs.size() + "@" + attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
     @Override
     public void deleteIfExists(String path) throws IOException {
         Files.deleteIfExists(Paths.get(path));
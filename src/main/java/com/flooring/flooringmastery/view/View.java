@@ -2,12 +2,14 @@ package com.flooring.flooringmastery.view;
 
 import com.flooring.flooringmastery.model.Order;
 import com.flooring.flooringmastery.model.Product;
+import com.flooring.flooringmastery.model.SalesTotals;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @Component
 public class View {
@@ -26,8 +28,22 @@ public class View {
         io.print("3. Edit an Order");
         io.print("4. Remove an Order");
         io.print("5. Export Data");
-        io.print("6. Quit");
-        return io.readInt("Please select from the above choices: ", 1, 6);
+        io.print("6. Export Date Range");
+        io.print("7. Import Orders");
+        io.print("8. Reprice Open Orders");
+        io.print("9. Sales Reports");
+        io.print("10. Find Orders by Customer");
+        io.print("11. Diagnostics");
+        io.print("12. Quit");
+        return io.readInt("Please select from the above choices: ", 1, 12);
+    }
+    public int displaySalesMenuAndGetSelection() {
+        io.print("=== Sales Reports ===");
+        io.print("1. Sales by State");
+        io.print("2. Sales by Product");
+        io.print("3. Sales by Date");
+        io.print("4. Rebuild Sales Totals");
+        return io.readInt("Please select a report: ", 1, 4);
     }
     public LocalDate getDateFromString(String prompt) {
         return io.readDate(prompt);
@@ -63,6 +79,35 @@ public class View {
                 order.getArea(),
                 order.getTotal()));
     }
+    public void displaySalesTotals(String title, Map<?, SalesTotals> totals) {
+        io.print("===== " + title + " =====");
+        if (totals.isEmpty()) {
+            io.print("No sales in this period.");
+            return;
+        }
+        io.print(String.format("%-12s %8s %12s %12s %12s %10s %12s", "", "Orders", "Area", "Material", "Labor", "Tax", "Total"));
+        SalesTotals sum = SalesTotals.EMPTY;
+        for (Map.Entry<?, SalesTotals> row : totals.entrySet()) {
+            io.print(formatSalesRow(String.valueOf(row.getKey()), row.getValue()));
+            sum = sum.plus(row.getValue());
+        }
+        io.print(formatSalesRow("All", sum));
+    }
+
+    private String formatSalesRow(String label, SalesTotals t) {
+        return String.format("%-12s %8d %12.2f %12.2f %12.2f %10.2f %12.2f", label, t.getCount(), t.getArea(),
+                t.getMaterialCost(), t.getLaborCost(), t.getTax(), t.getTotal());
+    }
+
+    public void displayDiagnostics(List<String> lines) {
+        io.print("===== Diagnostics =====");
+        if (lines.isEmpty()) {
+            io.print("Nothing recorded yet.");
+            return;
+        }
+        lines.forEach(io::print);
+    }
+
     public void displayList(List<String> strings){
         String result = String.join(",", strings);
         io.print(result);
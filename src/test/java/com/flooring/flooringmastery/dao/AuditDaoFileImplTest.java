@@ -0,0 +1,117 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.view.UserIOConsoleImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditDaoFileImplTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void testEntriesAreAppendedInOrderAndRotated() throws Exception {
+        Path log = folder.resolve("audit.log");
+        AuditDaoFileImpl dao = new AuditDaoFileImpl(new UserIOConsoleImpl(), log.toString(), 1000, "batch", 1000,
+                "block", 400, 2);
+        // a group is written whole and the file rolls after it, flushing every ten keeps groups small
+        for (int i = 0; i < 100; i++) {
+            dao.writeAuditEntry("entry-" + i);
+            if (i % 10 == 9) dao.flush();
+        }
+        dao.shutdown();
+
+        assertTrue(Files.exists(folder.resolve("audit.log.1")));
+        assertTrue(Files.exists(folder.resolve("audit.log.2")));
+        assertFalse(Files.exists(folder.resolve("audit.log.3")));
+
+        // oldest file first, the entries that are kept stay in order and end with the last one
+        List<String> lines = new ArrayList<>(Files.readAllLines(folder.resolve("audit.log.2")));
+        lines.addAll(Files.readAllLines(folder.resolve("audit.log.1")));
+        lines.addAll(Files.readAllLines(log));
+        int previous = -1;
+        for (String line : lines) {
+            int number = Integer.parseInt(line.substring(line.lastIndexOf('-') + 1));
+            assertEquals(previous + 1 == 0 ? number : previous + 1, number);
+            previous = number;
+        }
+        assertEquals(99, previous);
+    }
+
+    @Test
+    void testDroppedEntriesAreCountedInTheLog() throws Exception {
+        Path log = folder.resolve("audit.log");
+        AuditDaoFileImpl dao = new AuditDaoFileImpl(new UserIOConsoleImpl(), log.toString(), 1, "none", 1000,
+                "drop", 0, 0);
+        for (int i = 0; i < 10_000; i++) dao.writeAuditEntry("entry-" + i);
+        dao.shutdown();
+
+        long logged = 0;
+        for (String line : Files.readAllLines(log)) {
+            if (line.endsWith("audit entries dropped, buffer full")) {
+                logged += Long.parseLong(line.split(" ")[1]);
+            } else {
+                logged++;
+            }
+        }
+        assertEquals(10_000, logged);
+    }
+
+    @Test
+    void testFailedRotationKeepsWriting() throws Exception {
+        Path log = folder.resolve("audit.log");
+        // the first rotation fails with an IOException, the second with a RuntimeException
+        AtomicInteger moves = new AtomicInteger();
+        UserIOConsoleImpl failingMoves = new UserIOConsoleImpl() {
+            @Override
+            public void move(String fromPath, String toPath) throws IOException {
+                int move = moves.incrementAndGet();
+                if (move == 1) throw new IOException("disk full");
+                if (move == 2) throw new UncheckedIOException(new IOException("disk full"));
+                super.move(fromPath, toPath);
+            }
+        };
+        AuditDaoFileImpl dao = new AuditDaoFileImpl(failingMoves, log.toString(), 1000, "batch", 1000,
+                "block", 10, 5);
+        for (int i = 0; i < 4; i++) {
+            dao.writeAuditEntry("entry-" + i);
+            dao.flush();
+        }
+        dao.shutdown();
+
+        // every entry fills the file, the two failed rotations left theirs in audit.log for the third to roll
+        assertEquals(List.of("entry-0", "entry-1", "entry-2"), entryNames(folder.resolve("audit.log.2")));
+        assertEquals(List.of("entry-3"), entryNames(folder.resolve("audit.log.1")));
+    }
+
+    @Test
+    void testBlockedWriterGivesUpOnceStopped() {
+        Path log = folder.resolve("audit.log");
+        AuditDaoFileImpl dao = new AuditDaoFileImpl(new UserIOConsoleImpl(), log.toString(), 1, "none", 1000,
+                "block", 0, 0);
+        dao.shutdown();
+        // nothing drains the full buffer any more, so the entry is dropped rather than waited on
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            dao.writeAuditEntry("entry-0");
+            dao.writeAuditEntry("entry-1");
+        });
+        assertTrue(dao.getDropped() >= 1);
+    }
+
+    private static List<String> entryNames(Path file) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) names.add(line.substring(line.indexOf(' ') + 1));
+        return names;
+    }
+}
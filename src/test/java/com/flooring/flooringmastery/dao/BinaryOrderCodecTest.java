@@ -0,0 +1,54 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.model.Order;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class BinaryOrderCodecTest {
+
+    private final LocalDate date = LocalDate.of(2026, 1, 1);
+
+    @Test
+    void testTextToBinaryAndBackIsLossless() throws IOException {
+        List<String> text = List.of(
+                OrderFileWriter.HEADER,
+                "4,haha haha,TX,4.45,tile,101,3.50,4.15,353.50,419.15,34.382925,807.032925",
+                "5,yep its me,KY,6.00,wood,4500,5.15,4.75,23175.00,21375.00,2673.0000,47223.0000",
+                "6,,KY,,carpet,101,2.25,2.10,227.25,212.10,,465.7110");
+
+        List<Order> orders = new ArrayList<>();
+        new OrderFileReader().read(new StringReader(String.join("\n", text)), date, orders::add);
+
+        List<Order> decoded = BinaryOrderCodec.decode(BinaryOrderCodec.encode(orders), date);
+
+        // same rows, same scales, same empty fields
+        assertEquals(text, OrderFileWriter.toLines(decoded));
+        assertEquals(date, decoded.get(0).getOrderDate());
+    }
+
+    @Test
+    void testSumColumnWithoutDecoding() {
+        List<Order> orders = new ArrayList<>();
+        String[] totals = {"807.032925", "47223.0000", "465.7110"};
+        for (int i = 0; i < totals.length; i++) {
+            Order o = new Order();
+            o.setOrderNumber(i + 1);
+            o.setTotal(new BigDecimal(totals[i]));
+            orders.add(o);
+        }
+        orders.add(new Order()); // missing total counts as zero
+
+        byte[] data = BinaryOrderCodec.encode(orders);
+        BigDecimal sum = BinaryOrderCodec.sumColumn(data, BinaryOrderCodec.Column.TOTAL);
+        assertEquals(0, new BigDecimal("48495.743925").compareTo(sum));
+    }
+}
@@ -2,14 +2,19 @@ package com.flooring.flooringmastery.dao;
 
 import com.flooring.flooringmastery.exceptions.PersistenceException;
 import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.view.UserIOConsoleImpl;
 
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 import org.junit.jupiter.api.Test;
@@ -24,6 +29,7 @@ class ExportDaoFileImplTest {
     @AfterEach
     void cleanup() throws IOException {
         if (Files.exists(EXPORT_PATH)) Files.delete(EXPORT_PATH);
+        Files.deleteIfExists(Path.of("FileData/Backup/DataExport.index"));
     }
 
     @Test
@@ -57,4 +63,294 @@ class ExportDaoFileImplTest {
         String content = Files.readString(EXPORT_PATH);
         assertTrue(content.contains("ExportTest"), "Exported content should include the customer name");
     }
+
+    @Test
+    void testExportStreamsDatesInOrder() throws Exception {
+        UserIOConsoleImpl io = new UserIOConsoleImpl();
+        OrderDaoSqlImpl orderDao = new OrderDaoSqlImpl(io, "jdbc:h2:mem:export" + System.nanoTime(), false);
+        try {
+            for (int number : new int[] {7, 3, 5}) {
+                Order o = new Order();
+                o.setOrderNumber(number);
+                o.setCustomerName("Customer " + number);
+                o.setTotal(new BigDecimal("12.345678"));
+                orderDao.addOrder(number == 5 ? LocalDate.of(2025, 1, 2) : LocalDate.of(2025, 3, 4), o);
+            }
+            new ExportDaoFileImpl(io).exportData(orderDao);
+        } finally {
+            orderDao.shutdown();
+        }
+
+        assertEquals(List.of(
+                "OrderDate,OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total",
+                "2025-01-02,5,Customer 5,,,,,,,,,,12.345678",
+                "2025-03-04,3,Customer 3,,,,,,,,,,12.345678",
+                "2025-03-04,7,Customer 7,,,,,,,,,,12.345678"), Files.readAllLines(EXPORT_PATH));
+        assertFalse(Files.exists(Path.of(EXPORT_PATH + ".tmp")), "temp file should be renamed into place");
+    }
+
+    @Test
+    void testParallelExportMatchesSequential() throws Exception {
+        Map<LocalDate, Map<Integer, Order>> map = new TreeMap<>();
+        int number = 1;
+        for (LocalDate day = LocalDate.of(2023, 1, 1); day.isBefore(LocalDate.of(2024, 1, 1)); day = day.plusDays(1)) {
+            for (int i = 0; i < 5; i++) {
+                Order o = new Order();
+                o.setOrderNumber(number++);
+                o.setCustomerName("Customer " + number);
+                o.setArea(new BigDecimal(100 + i));
+                o.setTotal(new BigDecimal("798.83"));
+                map.computeIfAbsent(day, d -> new TreeMap<>()).put(o.getOrderNumber(), o);
+            }
+        }
+
+        new ExportDaoFileImpl(new UserIOConsoleImpl(), 1).exportData(map);
+        byte[] sequential = Files.readAllBytes(EXPORT_PATH);
+        new ExportDaoFileImpl(new UserIOConsoleImpl(), 4).exportData(map);
+
+        assertArrayEquals(sequential, Files.readAllBytes(EXPORT_PATH));
+        assertEquals(365 * 5 + 1, Files.readAllLines(EXPORT_PATH).size());
+    }
+
+    @Test
+    void testIncrementalExportRendersOnlyChangedDates() throws Exception {
+        UserIOConsoleImpl io = new UserIOConsoleImpl();
+        LocalDate first = LocalDate.of(2025, 1, 2);
+        LocalDate second = LocalDate.of(2025, 3, 4);
+        Map<LocalDate, String> stamps = new HashMap<>(Map.of(first, "a", second, "b"));
+        Set<LocalDate> reads = ConcurrentHashMap.newKeySet();
+        OrderDaoSqlImpl orderDao = new OrderDaoSqlImpl(io, "jdbc:h2:mem:delta" + System.nanoTime(), false) {
+            @Override
+            public String getDateStamp(LocalDate date) {
+                return stamps.get(date);
+            }
+
+            @Override
+            public List<Order> readOrdersForDate(LocalDate date) throws PersistenceException {
+                reads.add(date);
+                return super.readOrdersForDate(date);
+            }
+        };
+        try {
+            for (int number = 1; number <= 4; number++) {
+                Order o = new Order();
+                o.setOrderNumber(number);
+                o.setCustomerName("Customer " + number);
+                orderDao.addOrder(number <= 2 ? first : second, o);
+            }
+            ExportDaoFileImpl exportDao = new ExportDaoFileImpl(io, 2, true);
+            exportDao.exportData(orderDao);
+            assertEquals(Set.of(first, second), reads);
+            String full = Files.readString(EXPORT_PATH);
+
+            // nothing changed, every date is copied from the previous export
+            reads.clear();
+            exportDao.exportData(orderDao);
+            assertEquals(Set.of(), reads);
+            assertEquals(full, Files.readString(EXPORT_PATH));
+
+            Order renamed = orderDao.getOrder(second, 4);
+            renamed.setCustomerName("Renamed");
+            orderDao.updateOrder(second, renamed);
+            stamps.put(second, "c");
+            reads.clear();
+            exportDao.exportData(orderDao);
+            assertEquals(Set.of(second), reads);
+            String spliced = Files.readString(EXPORT_PATH);
+            assertTrue(spliced.contains("Renamed"));
+
+            new ExportDaoFileImpl(io, 1).exportData(orderDao);
+            assertEquals(Files.readString(EXPORT_PATH), spliced);
+
+            // an export edited by hand no longer matches the manifest, so everything is rendered again
+            new ExportDaoFileImpl(io, 1, true).exportData(orderDao);
+            Files.writeString(EXPORT_PATH, spliced.replace("Customer 1", "Customer X"));
+            reads.clear();
+            exportDao.exportData(orderDao);
+            assertEquals(Set.of(first, second), reads);
+            assertEquals(spliced, Files.readString(EXPORT_PATH));
+        } finally {
+            orderDao.shutdown();
+            Files.deleteIfExists(Path.of("FileData/Backup/DataExport.manifest"));
+        }
+    }
+
+    @Test
+    void testMonthlyGzipSlicesReadOnTheirOwn() throws Exception {
+        Map<LocalDate, Map<Integer, Order>> map = new TreeMap<>();
+        int number = 1;
+        for (LocalDate day : List.of(LocalDate.of(2025, 1, 5), LocalDate.of(2025, 1, 20), LocalDate.of(2025, 2, 3))) {
+            Order o = new Order();
+            o.setOrderNumber(number++);
+            o.setCustomerName("Customer " + o.getOrderNumber());
+            map.computeIfAbsent(day, d -> new TreeMap<>()).put(o.getOrderNumber(), o);
+        }
+
+        Path january = Path.of("FileData/Backup/DataExport_2025-01.txt.gz");
+        Path february = Path.of("FileData/Backup/DataExport_2025-02.txt.gz");
+        Path index = Path.of("FileData/Backup/DataExport.index");
+        try {
+            List<String> files = new ExportDaoFileImpl(new UserIOConsoleImpl(), 2, false, "gzip", "month", 0, false)
+                    .exportData(map);
+            assertEquals(List.of(january.toString(), february.toString()), files);
+
+            List<String> januaryRows = readGzip(january);
+            List<String> februaryRows = readGzip(february);
+            assertEquals(3, januaryRows.size());
+            assertEquals(List.of(januaryRows.get(0), "2025-02-03,3,Customer 3,,,,,,,,,,"), februaryRows);
+            assertEquals(List.of("File,FirstDate,LastDate,Dates,Chars",
+                            "DataExport_2025-01.txt.gz,2025-01-05,2025-01-20,2," + chars(januaryRows),
+                            "DataExport_2025-02.txt.gz,2025-02-03,2025-02-03,1," + chars(februaryRows)),
+                    Files.readAllLines(index));
+
+            // back to a single plain file, the slices of the previous export are removed
+            assertEquals(List.of(EXPORT_PATH.toString()), new ExportDaoFileImpl(new UserIOConsoleImpl()).exportData(map));
+            assertFalse(Files.exists(january));
+            assertFalse(Files.exists(february));
+            assertEquals(4, Files.readAllLines(EXPORT_PATH).size());
+        } finally {
+            Files.deleteIfExists(january);
+            Files.deleteIfExists(february);
+            Files.deleteIfExists(index);
+        }
+    }
+
+    @Test
+    void testSizeRollingKeepsDatesWhole() throws Exception {
+        Map<LocalDate, Map<Integer, Order>> map = new TreeMap<>();
+        for (int day = 1; day <= 6; day++) {
+            Order o = new Order();
+            o.setOrderNumber(day);
+            o.setCustomerName("Customer " + day);
+            map.computeIfAbsent(LocalDate.of(2025, 4, day), d -> new TreeMap<>()).put(day, o);
+        }
+
+        Path index = Path.of("FileData/Backup/DataExport.index");
+        // room for the header and two rows per slice
+        new ExportDaoFileImpl(new UserIOConsoleImpl(), 1, false, "deflate", "size", 220, false).exportData(map);
+        List<String> slices = Files.readAllLines(index);
+        try {
+            assertEquals(4, slices.size());
+            assertTrue(slices.get(1).startsWith("DataExport_0001.txt.deflate,2025-04-01,2025-04-02,2,"));
+            assertTrue(slices.get(3).startsWith("DataExport_0003.txt.deflate,2025-04-05,2025-04-06,2,"));
+        } finally {
+            for (int i = 1; i < slices.size(); i++) {
+                Files.deleteIfExists(Path.of("FileData/Backup/" + slices.get(i).split(",")[0]));
+            }
+            Files.deleteIfExists(index);
+        }
+    }
+
+    @Test
+    void testIncrementalMonthSliceLeftInPlace() throws Exception {
+        UserIOConsoleImpl io = new UserIOConsoleImpl();
+        LocalDate march = LocalDate.of(2024, 3, 1);
+        LocalDate april = LocalDate.of(2024, 4, 1);
+        Map<LocalDate, String> stamps = new HashMap<>(Map.of(march, "a", april, "b"));
+        OrderDaoSqlImpl orderDao = new OrderDaoSqlImpl(io, "jdbc:h2:mem:slices" + System.nanoTime(), false) {
+            @Override
+            public String getDateStamp(LocalDate date) {
+                return stamps.get(date);
+            }
+        };
+        Path marchSlice = Path.of("FileData/Backup/DataExport_2024-03.txt.gz");
+        Path aprilSlice = Path.of("FileData/Backup/DataExport_2024-04.txt.gz");
+        try {
+            for (int number = 1; number <= 2; number++) {
+                Order o = new Order();
+                o.setOrderNumber(number);
+                o.setCustomerName("Customer " + number);
+                orderDao.addOrder(number == 1 ? march : april, o);
+            }
+            ExportDaoFileImpl exportDao = new ExportDaoFileImpl(io, 2, true, "gzip", "month", 0, false);
+            exportDao.exportData(orderDao);
+            Files.setLastModifiedTime(marchSlice, java.nio.file.attribute.FileTime.fromMillis(0));
+
+            Order renamed = orderDao.getOrder(april, 2);
+            renamed.setCustomerName("Renamed");
+            orderDao.updateOrder(april, renamed);
+            stamps.put(april, "c");
+            exportDao.exportData(orderDao);
+
+            assertEquals(0, Files.getLastModifiedTime(marchSlice).toMillis(), "unchanged month is not rewritten");
+            assertEquals("2024-04-01,2,Renamed,,,,,,,,,,", readGzip(aprilSlice).get(1));
+        } finally {
+            orderDao.shutdown();
+            Files.deleteIfExists(marchSlice);
+            Files.deleteIfExists(aprilSlice);
+            Files.deleteIfExists(Path.of("FileData/Backup/DataExport.manifest"));
+        }
+    }
+
+    @Test
+    void testRangeExportReadsOnlyDatesInRange() throws Exception {
+        UserIOConsoleImpl io = new UserIOConsoleImpl();
+        Set<LocalDate> reads = ConcurrentHashMap.newKeySet();
+        OrderDaoSqlImpl orderDao = new OrderDaoSqlImpl(io, "jdbc:h2:mem:range" + System.nanoTime(), false) {
+            @Override
+            public List<Order> readOrdersForDate(LocalDate date) throws PersistenceException {
+                reads.add(date);
+                return super.readOrdersForDate(date);
+            }
+        };
+        Path rangeFile = Path.of("FileData/Backup/DataExport_2025-05-02_2025-05-03.txt");
+        try {
+            for (int day = 1; day <= 4; day++) {
+                Order o = new Order();
+                o.setOrderNumber(day);
+                o.setCustomerName("Customer " + day);
+                orderDao.addOrder(LocalDate.of(2025, 5, day), o);
+            }
+
+            String written = new ExportDaoFileImpl(io).exportData(orderDao, LocalDate.of(2025, 5, 2), LocalDate.of(2025, 5, 3));
+
+            assertEquals(rangeFile.toString(), Path.of(written).toString());
+            assertEquals(Set.of(LocalDate.of(2025, 5, 2), LocalDate.of(2025, 5, 3)), reads);
+            List<String> lines = Files.readAllLines(rangeFile);
+            assertEquals(3, lines.size());
+            assertTrue(lines.get(1).startsWith("2025-05-02,2,"));
+            assertTrue(lines.get(2).startsWith("2025-05-03,3,"));
+            assertFalse(Files.exists(EXPORT_PATH), "the full export is left alone");
+        } finally {
+            orderDao.shutdown();
+            Files.deleteIfExists(rangeFile);
+        }
+    }
+
+    @Test
+    void testRawExportMatchesFormattedExport() throws Exception {
+        LocalDate day = LocalDate.of(2025, 12, 3);
+        Path orders = Path.of("FileData/Orders/Orders_12032025.txt");
+        Path rangeFile = Path.of("FileData/Backup/DataExport_2025-12-03_2025-12-03.txt");
+        Files.write(orders, List.of(OrderFileWriter.HEADER,
+                "92,Second,TX,4.45,Tile,101,3.50,4.15,353.50,419.15,34.382925,807.032925",
+                "x,Broken,TX,4.45,Tile,101,3.50,4.15,353.50,419.15,34.38,807.03",
+                "91,First,KY,6.00,Wood,4500,5.15,4.75,23175.00,21375.00,2673.0000,47223.0000",
+                "92,Second Again,TX,4.45,Tile,101,3.50,4.15,353.50,419.15,34.382925,807.032925"));
+        try {
+            OrderDaoFileImpl orderDao = new OrderDaoFileImpl(new UserIOConsoleImpl());
+            new ExportDaoFileImpl(new UserIOConsoleImpl(), 2, false, "none", "none", 0, true).exportData(orderDao, day, day);
+            List<String> rawRows = Files.readAllLines(rangeFile);
+            new ExportDaoFileImpl(new UserIOConsoleImpl(), 2).exportData(orderDao, day, day);
+
+            assertEquals(Files.readAllLines(rangeFile), rawRows);
+            assertEquals(3, rawRows.size());
+            assertTrue(rawRows.get(1).startsWith("2025-12-03,91,First,"));
+            assertTrue(rawRows.get(2).startsWith("2025-12-03,92,Second Again,"));
+        } finally {
+            Files.deleteIfExists(orders);
+            Files.deleteIfExists(rangeFile);
+        }
+    }
+
+    private static List<String> readGzip(Path file) throws IOException {
+        try (java.io.BufferedReader in = new java.io.BufferedReader(new java.io.InputStreamReader(
+                new java.util.zip.GZIPInputStream(Files.newInputStream(file))))) {
+            return in.lines().toList();
+        }
+    }
+
+    private static long chars(List<String> lines) {
+        return lines.stream().mapToLong(line -> line.length() + System.lineSeparator().length()).sum();
+    }
 }
@@ -0,0 +1,77 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.view.UserIOConsoleImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportDaoFileImplTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void testReadsRowsAndReportsBadLines() throws Exception {
+        Path csv = folder.resolve("quotes.csv");
+        Files.write(csv, List.of(ImportDaoFileImpl.HEADER,
+                "2030-01-02,Smith, Jr.,tx,Tile,150.5",
+                "2030-13-01,Bad Date,TX,Tile,150",
+                "",
+                "2030-01-03,No Area,TX,Tile,lots",
+                "2030-01-04,Short"));
+
+        Map<Integer, String> errors = new TreeMap<>();
+        Map<Integer, Order> orders = new ImportDaoFileImpl(new UserIOConsoleImpl()).readOrders(csv.toString(), errors);
+
+        assertEquals(List.of(2), List.copyOf(orders.keySet()));
+        Order order = orders.get(2);
+        assertEquals(LocalDate.of(2030, 1, 2), order.getOrderDate());
+        assertEquals("Smith, Jr.", order.getCustomerName());
+        assertEquals("TX", order.getState());
+        assertEquals("Tile", order.getProductType());
+        assertEquals(new BigDecimal("150.5"), order.getArea());
+        assertEquals(List.of(3, 5, 6), List.copyOf(errors.keySet()));
+    }
+
+    @Test
+    void testMissingFileThrows() {
+        ImportDaoFileImpl dao = new ImportDaoFileImpl(new UserIOConsoleImpl());
+        assertThrows(PersistenceException.class, () -> dao.readOrders(folder.resolve("none.csv").toString(), new TreeMap<>()));
+    }
+
+    @Test
+    void testNameWithCommaSurvivesTheDayFile() throws Exception {
+        Path csv = folder.resolve("quotes.csv");
+        Files.write(csv, List.of("2030-01-02,Doe, John,TX,Tile,150", "2030-01-02,\"Roe, Jane\",TX,Tile,160"));
+        Map<Integer, Order> imported = new ImportDaoFileImpl(new UserIOConsoleImpl()).readOrders(csv.toString(), new TreeMap<>());
+        assertEquals("Roe, Jane", imported.get(2).getCustomerName());
+
+        String orders = folder.resolve("Orders").toString();
+        OrderDaoFileImpl dao = new OrderDaoFileImpl(new UserIOConsoleImpl(), orders);
+        int number = 1;
+        for (Order order : imported.values()) {
+            order.setOrderNumber(number++);
+            dao.addOrder(order.getOrderDate(), order);
+        }
+
+        // a fresh dao parses the day file again, the names keep their commas and the other columns stay put
+        OrderDaoFileImpl reopened = new OrderDaoFileImpl(new UserIOConsoleImpl(), orders);
+        List<Order> reloaded = reopened.getOrdersForDate(LocalDate.of(2030, 1, 2));
+        assertEquals(2, reloaded.size());
+        assertEquals("Doe, John", reopened.getOrder(1).getCustomerName());
+        assertEquals("TX", reopened.getOrder(1).getState());
+        assertEquals(new BigDecimal("160"), reopened.getOrder(2).getArea());
+        assertEquals(0, reopened.getMalformedRowCount());
+    }
+}
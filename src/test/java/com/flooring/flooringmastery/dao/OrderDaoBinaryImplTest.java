@@ -0,0 +1,140 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.view.UserIOConsoleImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderDaoBinaryImplTest {
+
+    private static final LocalDate DATE = LocalDate.of(2026, 1, 1);
+    private static final List<String> ROWS = List.of(
+            "4,haha haha,TX,4.45,tile,101,3.50,4.15,353.50,419.15,34.382925,807.032925",
+            "5,yep its me,KY,6.00,wood,4500,5.15,4.75,23175.00,21375.00,2673.0000,47223.0000");
+
+    @TempDir
+    Path folder;
+    private Path text;
+    private Path binary;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        text = folder.resolve("Orders_01012026.txt");
+        binary = folder.resolve("Orders_01012026.bin");
+        Files.write(text, List.of(OrderFileWriter.HEADER, ROWS.get(0), ROWS.get(1)));
+    }
+
+    private OrderDaoBinaryImpl newDao() {
+        return new OrderDaoBinaryImpl(new UserIOConsoleImpl(), folder.toString());
+    }
+
+    @Test
+    void testTextDateMovesToBinaryOnFirstChange() throws Exception {
+        OrderDaoBinaryImpl dao = newDao();
+        // reading leaves the text file alone
+        assertEquals(2, dao.getOrdersForDate(DATE).size());
+        assertTrue(Files.exists(text));
+        assertFalse(Files.exists(binary));
+
+        Order added = new Order();
+        added.setOrderNumber(7);
+        added.setCustomerName("Added");
+        dao.addOrder(DATE, added);
+        assertTrue(Files.exists(binary));
+        assertFalse(Files.exists(text));
+
+        // a new dao reads the migrated rows back unchanged, scales included
+        OrderDaoBinaryImpl reopened = newDao();
+        assertEquals(ROWS.get(0), OrderFileWriter.toLine(reopened.getOrder(DATE, 4)));
+        assertEquals(ROWS.get(1), OrderFileWriter.toLine(reopened.getOrder(DATE, 5)));
+        assertEquals("Added", reopened.getOrder(DATE, 7).getCustomerName());
+    }
+
+    @Test
+    void testConvertToTextWritesTheSameRowsBack() throws Exception {
+        OrderDaoBinaryImpl dao = newDao();
+        dao.convertToBinary(DATE);
+        assertFalse(Files.exists(text));
+
+        newDao().convertToText(DATE);
+        assertTrue(Files.exists(binary));
+        List<String> lines = Files.readAllLines(text);
+        assertEquals(OrderFileWriter.HEADER, lines.get(0));
+        assertEquals(new HashSet<>(ROWS), new HashSet<>(lines.subList(1, lines.size())));
+    }
+
+    @Test
+    void testSumColumnConvertsTextDateAndSumsExactly() throws Exception {
+        OrderDaoBinaryImpl dao = newDao();
+        assertEquals(0, new BigDecimal("48030.032925").compareTo(dao.sumColumn(DATE, BinaryOrderCodec.Column.TOTAL)));
+        assertEquals(0, new BigDecimal("4601").compareTo(dao.sumColumn(DATE, BinaryOrderCodec.Column.AREA)));
+        assertEquals(0, new BigDecimal("2707.382925").compareTo(dao.sumColumn(DATE, BinaryOrderCodec.Column.TAX)));
+        assertTrue(Files.exists(binary));
+        assertFalse(Files.exists(text));
+        assertEquals(0, BigDecimal.ZERO.compareTo(dao.sumColumn(DATE.plusDays(1), BinaryOrderCodec.Column.TOTAL)));
+    }
+
+    @Test
+    void testGetOrderByNumberAfterLoadingEmptyDate() throws Exception {
+        newDao().convertToBinary(DATE);
+        // startup only reads order numbers for the mark, nothing is indexed
+        Files.write(folder.resolve("OrderNumber.txt"), List.of("HighestOrderNumber", "5"));
+
+        OrderDaoBinaryImpl dao = newDao();
+        assertTrue(dao.getOrdersForDate(DATE.plusDays(1)).isEmpty());
+        Order found = dao.getOrder(5);
+        assertNotNull(found);
+        assertEquals(DATE, found.getOrderDate());
+        assertEquals(6, dao.getNextOrderNumber());
+    }
+
+    @Test
+    void testRestartRaisesMarkForFileRestoredWithOldModificationTime() throws Exception {
+        newDao().shutdown();
+
+        // restored with its original time, older than the mark, as cp -p or tar x leave it
+        Path restored = folder.resolve("Orders_01152024.txt");
+        Files.write(restored, List.of(OrderFileWriter.HEADER, "70000,Restored,,,,,,,,,,"));
+        Files.setLastModifiedTime(restored, FileTime.fromMillis(System.currentTimeMillis() - 86_400_000L));
+
+        assertEquals(70001, newDao().getNextOrderNumber());
+    }
+
+    @Test
+    void testPendingJournalIsReplayedBeforeTheTextFileIsDropped() throws Exception {
+        Order journaled = new Order();
+        journaled.setOrderNumber(6);
+        journaled.setCustomerName("Journaled");
+        new OrderDaoFileImpl(new UserIOConsoleImpl(), folder.toString(), true, false, 0, 0, false, 0, 50_000)
+                .addOrder(DATE, journaled);
+        assertTrue(Files.exists(folder.resolve("Orders_01012026.journal")));
+
+        OrderDaoBinaryImpl dao = newDao();
+        assertFalse(Files.exists(folder.resolve("Orders_01012026.journal")));
+        Order added = new Order();
+        added.setOrderNumber(7);
+        dao.addOrder(DATE, added);
+
+        assertEquals("Journaled", newDao().getOrder(DATE, 6).getCustomerName());
+        assertEquals(4, newDao().getOrdersForDate(DATE).size());
+    }
+
+    @Test
+    void testJournalPendingOnBinaryDateRefusesToStart() throws Exception {
+        newDao().convertToBinary(DATE);
+        Files.write(folder.resolve("Orders_01012026.journal"), List.of("REMOVE,4"));
+
+        assertThrows(RuntimeException.class, this::newDao);
+    }
+}
@@ -0,0 +1,71 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.view.UserIOConsoleImpl;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class OrderDaoConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ORDERS_PER_THREAD = 50;
+    private final List<LocalDate> dates = List.of(
+            LocalDate.of(2031, 1, 1), LocalDate.of(2031, 1, 2), LocalDate.of(2031, 1, 3));
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void testConcurrentWritersLoseNothingAndNeverShareNumbers() throws Exception {
+        OrderDaoFileImpl dao = new OrderDaoFileImpl(new UserIOConsoleImpl(), folder.toString());
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Integer>>> results = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                List<Integer> mine = new ArrayList<>();
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    Order order = new Order();
+                    order.setOrderNumber(dao.getNextOrderNumber());
+                    order.setCustomerName("Stress");
+                    // several threads share each date so same-day writers contend too
+                    dao.addOrder(dates.get(i % dates.size()), order);
+                    mine.add(order.getOrderNumber());
+                    // readers run alongside the writers
+                    dao.getOrdersForDate(dates.get((i + 1) % dates.size()));
+                }
+                return mine;
+            }));
+        }
+        start.countDown();
+
+        Set<Integer> numbers = new HashSet<>();
+        for (Future<List<Integer>> result : results) {
+            for (Integer number : result.get(60, TimeUnit.SECONDS)) {
+                assertTrue(numbers.add(number), "order number handed out twice: " + number);
+            }
+        }
+        pool.shutdown();
+
+        int expected = THREADS * ORDERS_PER_THREAD;
+        assertEquals(expected, numbers.size());
+
+        // the files on disk hold every order, nothing was lost between concurrent rewrites
+        OrderDaoFileImpl reopened = new OrderDaoFileImpl(new UserIOConsoleImpl(), folder.toString());
+        int onDisk = 0;
+        for (LocalDate date : dates) {
+            onDisk += reopened.getOrdersForDate(date).size();
+        }
+        assertEquals(expected, onDisk);
+    }
+}
@@ -1,16 +1,20 @@
 package com.flooring.flooringmastery.dao;
 
-import com.flooring.flooringmastery.dao.OrderDaoFileImpl;
 import com.flooring.flooringmastery.view.UserIOConsoleImpl;
 import com.flooring.flooringmastery.model.Order;
 import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.metrics.Metrics;
 
 import java.math.BigDecimal;
 import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -19,11 +23,23 @@ class OrderDaoFileImplTest {
     private OrderDaoFileImpl dao;
     private final LocalDate date = LocalDate.of(2025, 10, 29);
 
+    @TempDir
+    Path folder;
+    private Path orders;
+
     @BeforeEach
     public void setUp() throws Exception {
-        dao = new OrderDaoFileImpl(new UserIOConsoleImpl());
-        // Optional: clear or reset in-memory map for test isolation
-        Files.createDirectories(Paths.get("FileData/Orders"));
+        orders = folder.resolve("Orders");
+        dao = newDao();
+    }
+
+    private OrderDaoFileImpl newDao() {
+        return new OrderDaoFileImpl(new UserIOConsoleImpl(), orders.toString());
+    }
+
+    private OrderDaoFileImpl newDao(boolean journaled, boolean writeBehind, boolean watch, int sortRunSize) {
+        return new OrderDaoFileImpl(new UserIOConsoleImpl(), orders.toString(), journaled, writeBehind, 0, 0,
+                watch, 50, sortRunSize);
     }
 
     @Test
@@ -59,7 +75,7 @@ class OrderDaoFileImplTest {
     @Test
     public void testRemoveLastOrderDeletesFile() throws Exception {
         // Ensure a clean file state
-        Path filePath = Paths.get("FileData/Orders/Orders_" + date.format(java.time.format.DateTimeFormatter.ofPattern("MMddyyyy")) + ".txt");
+        Path filePath = orders.resolve("Orders_" + date.format(java.time.format.DateTimeFormatter.ofPattern("MMddyyyy")) + ".txt");
         if (Files.exists(filePath)) Files.delete(filePath);
 
         // Add a single order -> file should be created
@@ -73,4 +89,409 @@ class OrderDaoFileImplTest {
         dao.removeOrder(date, 10);
         assertFalse(Files.exists(filePath));
     }
+
+    @Test
+    public void testNextOrderNumberAboveAddedOrder() throws PersistenceException {
+        int next = dao.getNextOrderNumber();
+
+        Order order = new Order();
+        order.setOrderNumber(next);
+        order.setCustomerName("High Water");
+        dao.addOrder(date, order);
+
+        // a fresh dao reads the persisted mark instead of loading every date
+        OrderDaoFileImpl reopened = newDao();
+        assertEquals(next + 1, reopened.getNextOrderNumber());
+
+        dao.removeOrder(date, next);
+    }
+
+    @Test
+    public void testGetOrderByNumberAlone() throws PersistenceException {
+        Order order = new Order();
+        order.setOrderNumber(dao.getNextOrderNumber());
+        order.setCustomerName("Indexed");
+        dao.addOrder(date, order);
+
+        // a fresh dao has not loaded the date, the index finds it from the order number column
+        OrderDaoFileImpl reopened = newDao();
+        Order found = reopened.getOrder(order.getOrderNumber());
+        assertNotNull(found);
+        assertEquals(date, found.getOrderDate());
+        assertNull(reopened.getOrder(Integer.MAX_VALUE));
+
+        // numbers are reserved as they are handed out
+        assertNotEquals(reopened.getNextOrderNumber(), reopened.getNextOrderNumber());
+
+        reopened.removeOrder(date, order.getOrderNumber());
+    }
+
+    @Test
+    public void testJournaledAddReplaysAndCompacts() throws Exception {
+        LocalDate journalDate = LocalDate.of(2025, 11, 30);
+        Path csv = orders.resolve("Orders_11302025.txt");
+        Path journal = orders.resolve("Orders_11302025.journal");
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(journal);
+
+        OrderDaoFileImpl journaledDao = newDao(true, false, false, 50_000);
+        Order first = new Order();
+        first.setOrderNumber(20);
+        first.setCustomerName("Journal One");
+        Order second = new Order();
+        second.setOrderNumber(21);
+        second.setCustomerName("Journal Two");
+        journaledDao.addOrder(journalDate, first);
+        journaledDao.addOrder(journalDate, second);
+        journaledDao.removeOrder(journalDate, 20);
+
+        // mutations are appended, the day file is not rewritten
+        assertTrue(Files.exists(journal));
+        assertFalse(Files.exists(csv));
+
+        // a new dao rebuilds the date from the journal
+        OrderDaoFileImpl reopened = newDao(true, false, false, 50_000);
+        assertNull(reopened.getOrder(journalDate, 20));
+        assertEquals("Journal Two", reopened.getOrder(journalDate, 21).getCustomerName());
+
+        reopened.saveAllOrders();
+        assertTrue(Files.exists(csv));
+        assertFalse(Files.exists(journal));
+
+        reopened.removeOrder(journalDate, 21);
+        reopened.saveAllOrders();
+        assertFalse(Files.exists(csv));
+        assertFalse(Files.exists(journal));
+    }
+
+    @Test
+    public void testWriteBehindDefersUntilSave() throws Exception {
+        LocalDate bulkDate = LocalDate.of(2025, 12, 1);
+        Path csv = orders.resolve("Orders_12012025.txt");
+        Files.deleteIfExists(csv);
+
+        // no interval and no size threshold, so only saveAllOrders flushes
+        OrderDaoFileImpl writeBehindDao = newDao(false, true, false, 50_000);
+        for (int i = 30; i < 40; i++) {
+            Order order = new Order();
+            order.setOrderNumber(i);
+            order.setCustomerName("Bulk " + i);
+            writeBehindDao.addOrder(bulkDate, order);
+        }
+        assertFalse(Files.exists(csv));
+        assertEquals(10, writeBehindDao.getOrdersForDate(bulkDate).size());
+
+        writeBehindDao.saveAllOrders();
+        assertEquals(11, Files.readAllLines(csv).size());
+
+        for (int i = 30; i < 40; i++) {
+            writeBehindDao.removeOrder(bulkDate, i);
+        }
+        writeBehindDao.shutdown();
+        assertFalse(Files.exists(csv));
+    }
+
+    @Test
+    public void testFailedFlushKeepsDateDirtyAndReachesSave() throws Exception {
+        LocalDate failing = LocalDate.of(2025, 12, 2);
+        LocalDate other = LocalDate.of(2025, 12, 3);
+        OrderDaoFileImpl writeBehindDao = newDao(false, true, false, 50_000);
+        for (LocalDate day : List.of(failing, other)) {
+            Order order = new Order();
+            order.setOrderNumber(day.getDayOfMonth() + 40);
+            order.setCustomerName("Flush " + day);
+            writeBehindDao.addOrder(day, order);
+        }
+
+        // a directory where the temp file goes makes the write for that date fail
+        Path blocker = Files.createDirectories(orders.resolve("Orders_12022025.txt.tmp"));
+        assertThrows(PersistenceException.class, writeBehindDao::saveAllOrders);
+        assertFalse(Files.exists(orders.resolve("Orders_12022025.txt")));
+        assertTrue(Files.exists(orders.resolve("Orders_12032025.txt")));
+
+        Files.delete(blocker);
+        writeBehindDao.saveAllOrders();
+        assertEquals(2, Files.readAllLines(orders.resolve("Orders_12022025.txt")).size());
+    }
+
+    @Test
+    public void testWatchPicksUpExternalEdit() throws Exception {
+        LocalDate watchedDate = LocalDate.of(2025, 12, 2);
+        Path csv = orders.resolve("Orders_12022025.txt");
+        Files.deleteIfExists(csv);
+
+        OrderDaoFileImpl watchingDao = newDao(false, false, true, 50_000);
+        try {
+            Order order = new Order();
+            order.setOrderNumber(50);
+            order.setCustomerName("Ours");
+            watchingDao.addOrder(watchedDate, order);
+
+            // another tool rewrites the file behind the DAO's back
+            Files.write(csv, List.of(OrderFileWriter.HEADER, "50,Theirs,,,,,,,,,,", "90051,Added,,,,,,,,,,"));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (watchingDao.getOrder(watchedDate, 90051) == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals("Theirs", watchingDao.getOrder(watchedDate, 50).getCustomerName());
+            assertNotNull(watchingDao.getOrder(90051));
+            assertTrue(watchingDao.getNextOrderNumber() > 90051);
+        } finally {
+            watchingDao.removeOrder(watchedDate, 50);
+            watchingDao.removeOrder(watchedDate, 90051);
+            watchingDao.shutdown();
+        }
+        assertFalse(Files.exists(csv));
+    }
+
+    @Test
+    public void testForEachOrderSortsLargeDayInSpilledRuns() throws Exception {
+        LocalDate scannedDate = LocalDate.of(2025, 12, 3);
+        Path csv = orders.resolve("Orders_12032025.txt");
+        Files.write(csv, List.of(OrderFileWriter.HEADER,
+                "90105,E,,,,,,,,,,", "90101,A,,,,,,,,,,", "90104,D,,,,,,,,,,",
+                "90103,C,,,,,,,,,,", "90102,Old,,,,,,,,,,", "90102,B,,,,,,,,,,"));
+        try {
+            // runs of two force three spills plus an in-memory tail
+            OrderDaoFileImpl scanningDao = newDao(false, false, false, 2);
+            List<String> names = new ArrayList<>();
+            scanningDao.forEachOrder(order -> {
+                if (scannedDate.equals(order.getOrderDate())) names.add(order.getCustomerName());
+            });
+
+            assertEquals(List.of("A", "B", "C", "D", "E"), names);
+            try (DirectoryStream<Path> runs = Files.newDirectoryStream(folder.resolve("Sort"), "run-*")) {
+                assertFalse(runs.iterator().hasNext());
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    @Test
+    public void testAddOrdersWritesBatchForDate() throws Exception {
+        LocalDate batchDate = LocalDate.of(2025, 12, 4);
+        Path csv = orders.resolve("Orders_12042025.txt");
+        Files.deleteIfExists(csv);
+
+        int first = dao.allocateOrderNumbers(3);
+        assertEquals(first + 3, dao.getNextOrderNumber());
+        List<Order> batch = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Order order = new Order();
+            order.setOrderNumber(first + i);
+            order.setCustomerName("Batch " + i);
+            batch.add(order);
+        }
+        try {
+            dao.addOrders(batchDate, batch);
+            assertEquals(4, Files.readAllLines(csv).size());
+            OrderDaoFileImpl reopened = newDao();
+            assertEquals("Batch 2", reopened.getOrder(first + 2).getCustomerName());
+            assertTrue(reopened.getNextOrderNumber() > first + 2);
+        } finally {
+            for (Order order : batch) dao.removeOrder(batchDate, order.getOrderNumber());
+        }
+        assertFalse(Files.exists(csv));
+    }
+
+    @Test
+    public void testLoadRecordsCacheAndFileMetrics() throws Exception {
+        LocalDate metricsDate = LocalDate.of(2025, 12, 5);
+        Path csv = orders.resolve("Orders_12052025.txt");
+        Order order = new Order();
+        order.setOrderNumber(dao.allocateOrderNumbers(1));
+        order.setCustomerName("Metrics");
+        dao.addOrder(metricsDate, order);
+        try {
+            long misses = Metrics.counter("orders.cache.misses").get();
+            long hits = Metrics.counter("orders.cache.hits").get();
+            long rows = Metrics.counter("orders.rows-parsed").get();
+            long bytes = Metrics.counter("orders.bytes-read").get();
+            long loads = Metrics.timer("orders.load-date").getCount();
+
+            // a fresh dao has to read the file once, the second lookup is served from memory
+            OrderDaoFileImpl reopened = newDao();
+            assertEquals(1, reopened.getOrdersForDate(metricsDate).size());
+            assertEquals(1, reopened.getOrdersForDate(metricsDate).size());
+
+            assertTrue(Metrics.counter("orders.cache.misses").get() >= misses + 1);
+            assertTrue(Metrics.counter("orders.cache.hits").get() >= hits + 1);
+            assertTrue(Metrics.counter("orders.rows-parsed").get() >= rows + 1);
+            assertTrue(Metrics.counter("orders.bytes-read").get() >= bytes + Files.size(csv));
+            assertTrue(Metrics.timer("orders.load-date").getCount() >= loads + 1);
+        } finally {
+            dao.removeOrder(metricsDate, order.getOrderNumber());
+        }
+    }
+
+    @Test
+    public void testRestartRaisesMarkForFilesWrittenWhileDown() throws Exception {
+        Order order = new Order();
+        order.setOrderNumber(dao.getNextOrderNumber());
+        order.setCustomerName("Before");
+        dao.addOrder(date, order);
+
+        // a backup restored while the app was down, written after the mark
+        Path restored = orders.resolve("Orders_01152024.txt");
+        Files.write(restored, List.of(OrderFileWriter.HEADER, "70000,Restored,,,,,,,,,,"));
+        Files.setLastModifiedTime(restored, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+
+        OrderDaoFileImpl reopened = newDao();
+        assertEquals(70001, reopened.getNextOrderNumber());
+        assertEquals(List.of("HighestOrderNumber", "70000"), Files.readAllLines(orders.resolve("OrderNumber.txt")));
+    }
+
+    @Test
+    public void testRestartScansRestoredFileWithOldModificationTime() throws Exception {
+        Order order = new Order();
+        order.setOrderNumber(dao.getNextOrderNumber());
+        order.setCustomerName("Before");
+        dao.addOrder(date, order);
+        dao.shutdown();
+
+        // restored with its original time, older than the mark, as cp -p or tar x leave it
+        Path restored = orders.resolve("Orders_01152024.txt");
+        Files.write(restored, List.of(OrderFileWriter.HEADER, "70000,Restored,,,,,,,,,,"));
+        Files.setLastModifiedTime(restored, FileTime.fromMillis(System.currentTimeMillis() - 86_400_000L));
+
+        OrderDaoFileImpl reopened = newDao();
+        assertEquals(70001, reopened.getNextOrderNumber());
+        assertEquals("Restored", reopened.getOrder(70000).getCustomerName());
+    }
+
+    @Test
+    public void testGetOrderByNumberAfterLoadingEmptyDate() throws Exception {
+        Files.createDirectories(orders);
+        Path csv = orders.resolve("Orders_03012030.txt");
+        Files.write(csv, List.of(OrderFileWriter.HEADER, "80001,Unread,,,,,,,,,,"));
+        Files.write(orders.resolve("OrderNumber.txt"), List.of("HighestOrderNumber", "80001"));
+        // the first start records the file in the manifest, the second trusts the mark and indexes nothing
+        newDao().shutdown();
+
+        OrderDaoFileImpl reopened = newDao();
+        // one date with no file indexed, one file not read yet: the counts match but the file is unindexed
+        assertTrue(reopened.getOrdersForDate(LocalDate.of(2030, 3, 2)).isEmpty());
+        Order found = reopened.getOrder(80001);
+        assertNotNull(found);
+        assertEquals(LocalDate.of(2030, 3, 1), found.getOrderDate());
+    }
+
+    @Test
+    public void testReloadPersistsMarkAndDropsStaleNumbers() throws Exception {
+        LocalDate editedDate = LocalDate.of(2030, 4, 1);
+        Path csv = orders.resolve("Orders_04012030.txt");
+        Files.createDirectories(orders);
+        Files.write(csv, List.of(OrderFileWriter.HEADER, "80010,Before,,,,,,,,,,"));
+        OrderDaoFileImpl reloading = newDao();
+        // indexed from the order number column only, the date is never loaded
+        assertNotNull(reloading.getOrder(80010));
+
+        // another tool swaps the order for one with a higher number
+        Files.write(csv, List.of(OrderFileWriter.HEADER, "80011,After,,,,,,,,,,"));
+        reloading.reloadOrdersForDate(editedDate);
+
+        assertNull(reloading.getOrder(80010));
+        assertEquals("After", reloading.getOrder(80011).getCustomerName());
+        assertEquals(List.of("HighestOrderNumber", "80011"), Files.readAllLines(orders.resolve("OrderNumber.txt")));
+        assertEquals(80012, newDao().getNextOrderNumber());
+    }
+
+    @Test
+    public void testSaveCompactsJournalsLeftByEarlierRun() throws Exception {
+        LocalDate journalDate = LocalDate.of(2030, 5, 1);
+        Path csv = orders.resolve("Orders_05012030.txt");
+        Path journal = orders.resolve("Orders_05012030.journal");
+        Order order = new Order();
+        order.setOrderNumber(80020);
+        order.setCustomerName("Left Over");
+        newDao(true, false, false, 50_000).addOrder(journalDate, order);
+        assertTrue(Files.exists(journal));
+
+        // the next run never reads the date, shutting down still folds the journal into the csv
+        OrderDaoFileImpl nextRun = newDao(true, false, false, 50_000);
+        nextRun.shutdown();
+        assertFalse(Files.exists(journal));
+        assertEquals(2, Files.readAllLines(csv).size());
+    }
+
+    @Test
+    public void testComputeOnDateHoldsOffConcurrentRemove() throws Exception {
+        LocalDate repriceDate = LocalDate.of(2030, 6, 1);
+        Order order = new Order();
+        order.setOrderNumber(80030);
+        order.setCustomerName("Before");
+        dao.addOrder(repriceDate, order);
+
+        Thread remover = new Thread(() -> {
+            try {
+                dao.removeOrder(repriceDate, 80030);
+            } catch (PersistenceException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        List<Order> written = dao.computeOnDate(repriceDate, stored -> {
+            remover.start();
+            try {
+                // the remove has to wait for the write below
+                remover.join(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertTrue(remover.isAlive());
+            Order edited = new Order(stored.get(0));
+            edited.setCustomerName("After");
+            return List.of(edited);
+        });
+        remover.join();
+
+        assertEquals("After", written.get(0).getCustomerName());
+        // the removal landed after the write and was not undone by it
+        assertNull(dao.getOrder(repriceDate, 80030));
+        assertNull(newDao().getOrder(80030));
+    }
+
+    @Test
+    public void testComputeOnDateParsesColdDateOnce() throws Exception {
+        LocalDate coldDate = LocalDate.of(2030, 6, 2);
+        for (int number = 80040; number < 80043; number++) {
+            Order order = new Order();
+            order.setOrderNumber(number);
+            order.setCustomerName("Cold " + number);
+            dao.addOrder(coldDate, order);
+        }
+
+        OrderDaoFileImpl restarted = newDao();
+        long rows = Metrics.counter("orders.rows-parsed").get();
+        restarted.computeOnDate(coldDate, stored -> {
+            Order edited = new Order(stored.get(0));
+            edited.setCustomerName("Repriced");
+            return List.of(edited);
+        });
+        assertEquals(rows + 3, Metrics.counter("orders.rows-parsed").get());
+        assertEquals(3, restarted.getOrdersForDate(coldDate).size());
+        assertEquals(rows + 3, Metrics.counter("orders.rows-parsed").get());
+    }
+
+    @Test
+    public void testGetAllOrdersLeavesDatesUncached() throws Exception {
+        LocalDate first = LocalDate.of(2030, 7, 1);
+        LocalDate second = LocalDate.of(2030, 7, 2);
+        for (LocalDate day : List.of(first, second)) {
+            Order order = new Order();
+            order.setOrderNumber(80050 + day.getDayOfMonth());
+            order.setCustomerName("All " + day);
+            dao.addOrder(day, order);
+        }
+
+        OrderDaoFileImpl restarted = newDao();
+        List<Order> all = restarted.getAllOrders();
+        assertEquals(List.of(80051, 80052), all.stream().map(Order::getOrderNumber).toList());
+
+        // the scan did not keep the dates, the next read loads them
+        long misses = Metrics.counter("orders.cache.misses").get();
+        restarted.getOrdersForDate(first);
+        assertTrue(Metrics.counter("orders.cache.misses").get() > misses);
+    }
 }
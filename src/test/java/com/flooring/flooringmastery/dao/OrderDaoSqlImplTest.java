@@ -0,0 +1,140 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.view.UserIOConsoleImpl;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class OrderDaoSqlImplTest {
+
+    private OrderDaoSqlImpl dao;
+    private final LocalDate date = LocalDate.of(2025, 10, 29);
+
+    @BeforeEach
+    void setUp() {
+        // private in-memory database, the order files are not imported
+        dao = new OrderDaoSqlImpl(new UserIOConsoleImpl(), "jdbc:h2:mem:orders" + System.nanoTime(), false);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dao.shutdown();
+    }
+
+    @Test
+    void testAddGetUpdateRemove() throws PersistenceException {
+        Order order = new Order();
+        order.setOrderNumber(dao.getNextOrderNumber());
+        order.setCustomerName("Sql Customer");
+        order.setState("TX");
+        order.setTaxRate(new BigDecimal("4.45"));
+        order.setArea(new BigDecimal("100"));
+        dao.addOrder(date, order);
+
+        Order fetched = dao.getOrder(date, order.getOrderNumber());
+        assertEquals("Sql Customer", fetched.getCustomerName());
+        assertEquals(date, fetched.getOrderDate());
+        assertEquals(0, new BigDecimal("4.45").compareTo(fetched.getTaxRate()));
+        assertNotNull(dao.getOrder(order.getOrderNumber()));
+
+        Order edited = new Order(order);
+        edited.setCustomerName("Renamed");
+        assertNotNull(dao.updateOrder(date, edited));
+        assertEquals("Renamed", dao.getOrdersForDate(date).get(0).getCustomerName());
+
+        assertNotNull(dao.removeOrder(date, order.getOrderNumber()));
+        assertNull(dao.removeOrder(date, order.getOrderNumber()));
+        assertTrue(dao.getOrdersForDate(date).isEmpty());
+    }
+
+    @Test
+    void testImportKeepsDateOrder() throws PersistenceException {
+        Order later = new Order();
+        later.setOrderNumber(2);
+        later.setOrderDate(date.plusDays(1));
+        Order earlier = new Order();
+        earlier.setOrderNumber(3);
+        earlier.setOrderDate(date);
+        dao.importOrders(List.of(later, earlier));
+
+        List<Order> all = dao.getAllOrders();
+        assertEquals(2, all.size());
+        assertEquals(3, all.get(0).getOrderNumber());
+        assertEquals(4, dao.getNextOrderNumber());
+    }
+
+    @Test
+    void testNumberOnAnotherDateIsRefusedNotMoved() throws PersistenceException {
+        Order order = new Order();
+        order.setOrderNumber(9);
+        order.setCustomerName("Stays Put");
+        dao.addOrder(date, order);
+
+        Order sameNumber = new Order(order);
+        assertThrows(PersistenceException.class, () -> dao.addOrder(date.plusDays(1), sameNumber));
+        assertThrows(PersistenceException.class, () -> dao.addOrders(date.plusDays(1), List.of(sameNumber)));
+        assertNull(dao.updateOrder(date.plusDays(1), sameNumber));
+
+        assertEquals(date, dao.getOrder(9).getOrderDate());
+        assertTrue(dao.getOrdersForDate(date.plusDays(1)).isEmpty());
+    }
+
+    @Test
+    void testDecimalsKeepValueAndScale() throws PersistenceException {
+        Order order = new Order();
+        order.setOrderNumber(7);
+        order.setCustomerName("Precise");
+        order.setState("CA");
+        order.setTaxRate(new BigDecimal("25.00"));
+        order.setProductType("Wood");
+        order.setArea(new BigDecimal("243.000"));
+        order.setCostPerSquareFoot(new BigDecimal("5.15"));
+        order.setLaborCostPerSquareFoot(new BigDecimal("4.75"));
+        order.setMaterialCost(new BigDecimal("1251.45"));
+        order.setLaborCost(new BigDecimal("1154.25"));
+        order.setTax(new BigDecimal("601.42500000"));
+        order.setTotal(new BigDecimal("3007.12345678"));
+        dao.importOrders(List.of(withDate(order)));
+
+        Order fetched = dao.getOrder(7);
+        assertEquals(order.getTotal(), fetched.getTotal());
+        assertEquals(order.getTax(), fetched.getTax());
+        assertEquals(order.getArea(), fetched.getArea());
+        assertEquals(OrderFileWriter.toLine(order), OrderFileWriter.toLine(fetched));
+    }
+
+    @Test
+    void testOrderFilesAreImportedOnlyOnce(@TempDir Path folder) throws Exception {
+        Path orders = folder.resolve("Orders");
+        Files.createDirectories(orders);
+        Files.write(orders.resolve("Orders_10292025.txt"), List.of(OrderFileWriter.HEADER, "5,From File,,,,,,,,,,"));
+        String url = "jdbc:h2:mem:once" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+
+        OrderDaoSqlImpl first = new OrderDaoSqlImpl(new UserIOConsoleImpl(), url, orders.toString(), true);
+        assertEquals("From File", first.getOrder(5).getCustomerName());
+        first.removeOrder(date, 5);
+        first.shutdown();
+
+        // the files are still there but the import is recorded, the emptied table stays empty
+        OrderDaoSqlImpl second = new OrderDaoSqlImpl(new UserIOConsoleImpl(), url, orders.toString(), true);
+        assertTrue(second.getAllOrders().isEmpty());
+        second.shutdown();
+    }
+
+    private Order withDate(Order order) {
+        order.setOrderDate(date);
+        return order;
+    }
+}
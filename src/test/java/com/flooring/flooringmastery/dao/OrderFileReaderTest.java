@@ -0,0 +1,78 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.model.Order;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class OrderFileReaderTest {
+
+    private static final String HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,"
+            + "CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+    private final LocalDate date = LocalDate.of(2025, 10, 29);
+
+    @Test
+    void testParsesRowsAcrossBufferBoundaries() throws IOException {
+        String file = HEADER + "\r\n"
+                + "4,haha haha,TX,4.45,tile,101,3.50,4.15,353.50,419.15,34.382925,807.032925\r\n"
+                + "5,yep its me,KY,6.00,wood,4500,5.15,4.75,23175.00,21375.00,2673.0000,47223.0000";
+
+        // a tiny buffer forces lines to be split between reads
+        OrderFileReader reader = new OrderFileReader(16);
+        List<Order> orders = new ArrayList<>();
+        reader.read(new StringReader(file), date, orders::add);
+
+        assertEquals(2, orders.size());
+        assertEquals(0, reader.getMalformedRows());
+        Order first = orders.get(0);
+        assertEquals(4, first.getOrderNumber());
+        assertEquals("haha haha", first.getCustomerName());
+        assertEquals(date, first.getOrderDate());
+        assertEquals(new BigDecimal("34.382925"), first.getTax());
+        assertEquals(new BigDecimal("807.032925"), first.getTotal());
+        assertEquals(new BigDecimal("47223.0000"), orders.get(1).getTotal());
+    }
+
+    @Test
+    void testQuotedFieldKeepsCommasAndQuotes() throws IOException {
+        String file = HEADER + "\n"
+                + "4,\"Doe, John \"\"JD\"\"\",TX,4.45,tile,101,3.50,4.15,353.50,419.15,34.382925,807.032925\n";
+
+        OrderFileReader reader = new OrderFileReader();
+        List<Order> orders = new ArrayList<>();
+        reader.read(new StringReader(file), date, orders::add);
+
+        assertEquals(0, reader.getMalformedRows());
+        assertEquals("Doe, John \"JD\"", orders.get(0).getCustomerName());
+        assertEquals("TX", orders.get(0).getState());
+        assertEquals(new BigDecimal("807.032925"), orders.get(0).getTotal());
+        assertEquals("4,\"Doe, John \"\"JD\"\"\",TX,4.45,tile,101,3.50,4.15,353.50,419.15,34.382925,807.032925",
+                OrderFileWriter.toLine(orders.get(0)));
+    }
+
+    @Test
+    void testMalformedRowsAreCounted() throws IOException {
+        String file = HEADER + "\n"
+                + "x,Bad Number,TX,4.45,tile,101,3.50,4.15,353.50,419.15,34.38,807.03\n"
+                + "8,Bad Area,TX,4.45,tile,lots,3.50,4.15,353.50,419.15,34.38,807.03\n"
+                + "9,Fine,TX,4.45,tile,101,3.50,4.15,353.50,419.15,34.38,807.03\n";
+
+        OrderFileReader reader = new OrderFileReader();
+        List<Order> orders = new ArrayList<>();
+        reader.read(new StringReader(file), date, orders::add);
+
+        // the row without a number is dropped, the bad area is left empty
+        assertEquals(2, orders.size());
+        assertNull(orders.get(0).getArea());
+        assertEquals(2, reader.getMalformedRows());
+        assertEquals(List.of(2, 3), reader.getMalformedLines());
+    }
+}
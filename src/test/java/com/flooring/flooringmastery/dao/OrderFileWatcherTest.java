@@ -0,0 +1,46 @@
+package com.flooring.flooringmastery.dao;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class OrderFileWatcherTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void testBurstOfWritesFiresOnce() throws Exception {
+        List<LocalDate> changed = new CopyOnWriteArrayList<>();
+        try (OrderFileWatcher watcher = new OrderFileWatcher(folder, 300, changed::add)) {
+            Path file = folder.resolve("Orders_01152026.txt");
+            for (int i = 0; i < 20; i++) {
+                Files.writeString(file, "row " + i);
+            }
+            Files.writeString(folder.resolve("Orders_01152026.txt.tmp"), "ignored");
+
+            Thread.sleep(1500);
+            assertEquals(List.of(LocalDate.of(2026, 1, 15)), changed);
+        }
+    }
+
+    @Test
+    void testOwnWritesAreIgnored() throws Exception {
+        List<LocalDate> changed = new CopyOnWriteArrayList<>();
+        try (OrderFileWatcher watcher = new OrderFileWatcher(folder, 100, changed::add)) {
+            LocalDate date = LocalDate.of(2026, 1, 16);
+            Files.writeString(folder.resolve("Orders_01162026.txt"), "ours");
+            watcher.recordOwnWrite(date);
+
+            Thread.sleep(800);
+            assertTrue(changed.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.view.UserIOConsoleImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderRunSorterTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void testMergesSpilledRunsByDateAndNumber() throws Exception {
+        List<Order> shuffled = new ArrayList<>();
+        for (int day = 1; day <= 3; day++) {
+            for (int number = 1; number <= 40; number++) {
+                shuffled.add(order(LocalDate.of(2025, 1, day), number, "C" + day + "-" + number));
+            }
+        }
+        Collections.shuffle(shuffled, new Random(7));
+
+        List<String> sorted = new ArrayList<>();
+        try (OrderRunSorter sorter = new OrderRunSorter(new UserIOConsoleImpl(), folder.toString(), 16)) {
+            shuffled.forEach(sorter::add);
+            assertEquals(7, sorter.getSpilledRuns());
+            sorter.forEachSorted(o -> sorted.add(o.getOrderDate().getDayOfMonth() + ":" + o.getOrderNumber()));
+        }
+
+        assertEquals(120, sorted.size());
+        assertEquals("1:1", sorted.get(0));
+        assertEquals("1:40", sorted.get(39));
+        assertEquals("2:1", sorted.get(40));
+        assertEquals("3:40", sorted.get(119));
+        try (var runs = Files.list(folder)) {
+            assertEquals(0, runs.count());
+        }
+    }
+
+    @Test
+    void testLaterDuplicateWinsAcrossRuns() throws Exception {
+        LocalDate date = LocalDate.of(2025, 2, 1);
+        List<String> names = new ArrayList<>();
+        try (OrderRunSorter sorter = new OrderRunSorter(new UserIOConsoleImpl(), folder.toString(), 2)) {
+            sorter.add(order(date, 5, "First"));
+            sorter.add(order(date, 1, "One"));
+            sorter.add(order(date, 5, "Second"));
+            sorter.add(order(date, 3, "Three"));
+            sorter.add(order(date, 5, "Last"));
+            sorter.forEachSorted(o -> names.add(o.getCustomerName()));
+        }
+
+        assertEquals(List.of("One", "Three", "Last"), names);
+    }
+
+    private Order order(LocalDate date, int number, String name) {
+        Order order = new Order();
+        order.setOrderDate(date);
+        order.setOrderNumber(number);
+        order.setCustomerName(name);
+        return order;
+    }
+}
@@ -0,0 +1,62 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.view.UserIOConsoleImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceFileCacheTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void testPollerPublishesEditedFile() throws Exception {
+        Path file = folder.resolve("Taxes.txt");
+        Files.write(file, List.of("State,StateName,TaxRate", "TX,Texas,4.45"));
+
+        try (ReferenceFileCache<List<String>> cache = new ReferenceFileCache<>(new UserIOConsoleImpl(), file.toString(),
+                lines -> List.copyOf(lines.subList(1, lines.size())), 20)) {
+            List<String> before = cache.get();
+            assertEquals(0, cache.version());
+
+            Files.write(file, List.of("State,StateName,TaxRate", "TX,Texas,5.00", "WA,Washington,9.25"));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cache.version() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+
+            assertEquals(1, cache.version());
+            assertEquals(List.of("TX,Texas,5.00", "WA,Washington,9.25"), cache.get());
+            // readers holding the old snapshot still see it whole
+            assertEquals(List.of("TX,Texas,4.45"), before);
+        }
+    }
+
+    @Test
+    void testBadEditKeepsPreviousSnapshot() throws Exception {
+        Path file = folder.resolve("Products.txt");
+        Files.write(file, List.of("ProductType,CostPerSquareFoot,LaborCostPerSquareFoot", "Tile,3.50,4.15"));
+
+        try (ReferenceFileCache<Integer> cache = new ReferenceFileCache<>(new UserIOConsoleImpl(), file.toString(),
+                lines -> Integer.parseInt(lines.get(1).split(",")[1].replace(".", "")), 0)) {
+            assertEquals(350, cache.get());
+
+            Files.write(file, List.of("ProductType,CostPerSquareFoot,LaborCostPerSquareFoot", "Tile,oops,4.15"));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 1000));
+            assertThrows(Exception.class, cache::reloadIfChanged);
+            assertEquals(350, cache.get());
+            assertEquals(0, cache.version());
+
+            Files.write(file, List.of("ProductType,CostPerSquareFoot,LaborCostPerSquareFoot", "Tile,3.75,4.15"));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 2000));
+            assertTrue(cache.reloadIfChanged());
+            assertEquals(375, cache.get());
+            assertFalse(cache.reloadIfChanged());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.flooring.flooringmastery.dao;
+
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.model.SalesTotals;
+import com.flooring.flooringmastery.view.UserIOConsoleImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SalesDaoFileImplTest {
+
+    private static final LocalDate DATE = LocalDate.of(2030, 3, 1);
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void testCompactedJournalIsNotAppliedTwice() throws Exception {
+        Path totals = folder.resolve("SalesTotals.txt");
+        Path journal = folder.resolve("SalesTotals.journal");
+        SalesDaoFileImpl dao = new SalesDaoFileImpl(new UserIOConsoleImpl(), new OrderDaoSqlImpl(new UserIOConsoleImpl(),
+                "jdbc:h2:mem:sales-" + System.nanoTime(), false), totals.toString());
+        // the first read builds the totals from the still empty order store
+        assertTrue(dao.getTotalsByDate(DATE, DATE).isEmpty());
+        for (int i = 0; i < 1005; i++) {
+            dao.recordAdded(DATE, order(i % 2 == 0 ? "TX" : "WA", "10.00"));
+        }
+        // 1000 lines were folded into the totals file, 5 are still journaled
+        assertEquals(5, Files.readAllLines(journal).size());
+
+        // a crash after writing the totals file but before deleting its journal
+        List<String> stale = new ArrayList<>(Files.readAllLines(journal));
+        for (int i = 995; i < 1000; i++) stale.add(0, i + ",+," + DATE + ",TX,Tile,100,1,1,1,10.00");
+        Files.write(journal, stale);
+
+        SalesDaoFileImpl reopened = new SalesDaoFileImpl(new UserIOConsoleImpl(), null, totals.toString());
+        SalesTotals tx = reopened.getTotalsByState(DATE, DATE).get("TX");
+        assertEquals(503, tx.getCount());
+        assertEquals(0, new BigDecimal("5030.00").compareTo(tx.getTotal()));
+        assertEquals(1005, reopened.getTotalsByDate(DATE, DATE).get(DATE).getCount());
+    }
+
+    @Test
+    void testRebuildScansOrdersWhenNoSidecarExists() throws Exception {
+        OrderDaoSqlImpl orders = new OrderDaoSqlImpl(new UserIOConsoleImpl(), "jdbc:h2:mem:sales-" + System.nanoTime(), false);
+        Order a = order("TX", "12.50");
+        a.setOrderNumber(1);
+        Order b = order("WA", "7.25");
+        b.setOrderNumber(2);
+        orders.addOrders(DATE, List.of(a, b));
+
+        SalesDaoFileImpl dao = new SalesDaoFileImpl(new UserIOConsoleImpl(), orders, folder.resolve("SalesTotals.txt").toString());
+        // nothing is scanned until the first report
+        assertFalse(Files.exists(folder.resolve("SalesTotals.txt")));
+        assertEquals(0, new BigDecimal("19.75").compareTo(dao.getTotalsByProduct(DATE, DATE).get("Tile").getTotal()));
+
+        dao.recordRemoved(DATE, b);
+        assertNull(dao.getTotalsByState(DATE, DATE).get("WA"));
+        orders.shutdown();
+    }
+
+    @Test
+    void testReloadedOrderFileRebuildsTotals() throws Exception {
+        String orderFolder = folder.resolve("Orders").toString() + "/";
+        OrderDaoFileImpl orders = new OrderDaoFileImpl(new UserIOConsoleImpl(), orderFolder);
+        Order a = order("TX", "12.50");
+        a.setOrderNumber(1);
+        orders.addOrder(DATE, a);
+        SalesDaoFileImpl dao = new SalesDaoFileImpl(new UserIOConsoleImpl(), orders, folder.resolve("SalesTotals.txt").toString());
+        assertEquals(1, dao.getTotalsByDate(DATE, DATE).get(DATE).getCount());
+
+        // another tool adds an order to the file and the watcher reloads the date
+        Order b = order("WA", "7.25");
+        b.setOrderNumber(2);
+        new OrderDaoFileImpl(new UserIOConsoleImpl(), orderFolder).addOrder(DATE, b);
+        orders.reloadOrdersForDate(DATE);
+        assertFalse(Files.exists(folder.resolve("SalesTotals.txt")));
+
+        // recorded while stale, the rebuild already sees it
+        Order c = order("TX", "1.00");
+        c.setOrderNumber(3);
+        orders.addOrder(DATE, c);
+        dao.recordAdded(DATE, c);
+        assertEquals(3, dao.getTotalsByDate(DATE, DATE).get(DATE).getCount());
+        assertEquals(0, new BigDecimal("7.25").compareTo(dao.getTotalsByState(DATE, DATE).get("WA").getTotal()));
+    }
+
+    private Order order(String state, String total) {
+        Order order = new Order();
+        order.setOrderDate(DATE);
+        order.setState(state);
+        order.setProductType("Tile");
+        order.setArea(new BigDecimal("100"));
+        order.setMaterialCost(BigDecimal.ONE);
+        order.setLaborCost(BigDecimal.ONE);
+        order.setTax(BigDecimal.ONE);
+        order.setTotal(new BigDecimal(total));
+        return order;
+    }
+}
@@ -0,0 +1,50 @@
+package com.flooring.flooringmastery.metrics;
+
+import com.flooring.flooringmastery.view.UserIOConsoleImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void testTimerPercentilesAreBucketUpperBounds() {
+        Metrics.Timer timer = Metrics.timer("test.percentiles");
+        for (int i = 0; i < 99; i++) timer.record(1_000);
+        timer.record(1_000_000);
+
+        assertEquals(100, timer.getCount());
+        assertEquals(1_000_000, timer.getMaxNanos());
+        assertEquals(99 * 1_000L + 1_000_000, timer.getTotalNanos());
+        // 1000ns falls in the bucket below 1024ns, the slow call only shows above p99
+        assertEquals(1024, timer.percentile(0.50));
+        assertEquals(1024, timer.percentile(0.99));
+        assertEquals(1_000_000, timer.percentile(1.0));
+        assertSame(timer, Metrics.timer("test.percentiles"));
+    }
+
+    @Test
+    void testReportAndExportListEveryMetric() throws Exception {
+        Metrics.timer("test.export").record(2_500_000);
+        Metrics.counter("test.export-count").add(42);
+
+        List<String> report = Metrics.report();
+        assertTrue(report.stream().anyMatch(l -> l.startsWith("test.export ") && l.contains("count=1") && l.contains("max=2.5ms")));
+        assertTrue(report.stream().anyMatch(l -> l.startsWith("test.export-count ") && l.endsWith(" 42")));
+
+        Path file = folder.resolve("Metrics.txt");
+        MetricsExporter exporter = new MetricsExporter(new UserIOConsoleImpl(), file.toString(), 0);
+        exporter.export();
+        List<String> lines = Files.readAllLines(file);
+        assertTrue(lines.get(0).startsWith("# "));
+        assertTrue(lines.contains(String.format("%-28s %d", "test.export-count", 42)));
+    }
+}
@@ -0,0 +1,135 @@
+package com.flooring.flooringmastery.service;
+
+import com.flooring.flooringmastery.dao.ProductDao;
+import com.flooring.flooringmastery.dao.TaxDao;
+import com.flooring.flooringmastery.exceptions.PersistenceException;
+import com.flooring.flooringmastery.model.Order;
+import com.flooring.flooringmastery.model.Product;
+import com.flooring.flooringmastery.model.Tax;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricingEngineTest {
+
+    @Test
+    void testFixedPointMatchesBigDecimalPath() throws PersistenceException {
+        Random random = new Random(18);
+        List<Product> products = new ArrayList<>(List.of(
+                product("Carpet", "2.25", "2.10"), product("Laminate", "1.75", "2.10"),
+                product("Tile", "3.50", "4.15"), product("Wood", "5.15", "4.75")));
+        List<Tax> taxes = new ArrayList<>(List.of(
+                tax("TX", "4.45"), tax("WA", "9.25"), tax("KY", "6.00"), tax("CA", "25.00")));
+        // odd scales on top of the shipped data
+        for (int i = 0; i < 6; i++) {
+            products.add(product("P" + i, decimal(random, 4), decimal(random, 4)));
+            taxes.add(tax("S" + i, decimal(random, 3)));
+        }
+        PricingEngine engine = new PricingEngine(new FixedProducts(products), new FixedTaxes(taxes));
+
+        for (int i = 0; i < 20_000; i++) {
+            Product product = products.get(random.nextInt(products.size()));
+            Tax tax = taxes.get(random.nextInt(taxes.size()));
+            BigDecimal area = new BigDecimal(100 + random.nextInt(100_000)).movePointLeft(random.nextInt(4));
+
+            Order fast = order(product, tax, area);
+            Order reference = order(product, tax, area);
+            engine.price(fast);
+            PricingEngine.priceWithBigDecimal(reference);
+
+            // equals, not compareTo, the scale ends up in the order files
+            String pair = product.getProductType() + "/" + tax.getStateAbbr() + " x " + area;
+            assertEquals(reference.getMaterialCost(), fast.getMaterialCost(), pair);
+            assertEquals(reference.getLaborCost(), fast.getLaborCost(), pair);
+            assertEquals(reference.getTax(), fast.getTax(), pair);
+            assertEquals(reference.getTotal(), fast.getTotal(), pair);
+        }
+    }
+
+    @Test
+    void testOverflowAndOwnRatesFallBackToBigDecimal() throws PersistenceException {
+        Product tile = product("Tile", "3.50", "4.15");
+        Tax texas = tax("TX", "4.45");
+        PricingEngine engine = new PricingEngine(new FixedProducts(List.of(tile)), new FixedTaxes(List.of(texas)));
+
+        Order huge = order(tile, texas, new BigDecimal("123456789012345678.9"));
+        engine.price(huge);
+        Order expected = order(tile, texas, huge.getArea());
+        PricingEngine.priceWithBigDecimal(expected);
+        assertEquals(expected.getTotal(), huge.getTotal());
+
+        // an edited order keeps the rates it was saved with
+        Order edited = order(tile, texas, new BigDecimal("200"));
+        edited.setTaxRate(new BigDecimal("5.00"));
+        engine.price(edited);
+        assertEquals(new BigDecimal("1530.00"), edited.getMaterialCost().add(edited.getLaborCost()));
+        assertEquals(0, new BigDecimal("76.50").compareTo(edited.getTax()));
+    }
+
+    @Test
+    void testLookupIgnoresCase() throws PersistenceException {
+        PricingEngine engine = new PricingEngine(new FixedProducts(List.of(product("Tile", "3.50", "4.15"))),
+                new FixedTaxes(List.of(tax("TX", "4.45"))));
+        assertNotNull(engine.lookup("tile", "tx"));
+        assertNull(engine.lookup("Wood", "TX"));
+    }
+
+    private static String decimal(Random random, int maxScale) {
+        return new BigDecimal(1 + random.nextInt(100_000)).movePointLeft(random.nextInt(maxScale + 1)).toPlainString();
+    }
+
+    private static Order order(Product product, Tax tax, BigDecimal area) {
+        Order order = new Order();
+        order.setProductType(product.getProductType());
+        order.setState(tax.getStateAbbr());
+        order.setCostPerSquareFoot(product.getCostPerSquareFoot());
+        order.setLaborCostPerSquareFoot(product.getLaborCostPerSquareFoot());
+        order.setTaxRate(tax.getTaxRate());
+        order.setArea(area);
+        return order;
+    }
+
+    private static Product product(String type, String cost, String labor) {
+        Product product = new Product();
+        product.setProductType(type);
+        product.setCostPerSquareFoot(new BigDecimal(cost));
+        product.setLaborCostPerSquareFoot(new BigDecimal(labor));
+        return product;
+    }
+
+    private static Tax tax(String state, String rate) {
+        Tax tax = new Tax();
+        tax.setStateAbbr(state);
+        tax.setTaxRate(new BigDecimal(rate));
+        return tax;
+    }
+
+    private record FixedProducts(List<Product> products) implements ProductDao {
+        @Override
+        public List<Product> getAllProducts() {
+            return products;
+        }
+
+        @Override
+        public Product getProductByType(String productType) {
+            return products.stream().filter(p -> p.getProductType().equalsIgnoreCase(productType)).findFirst().orElse(null);
+        }
+    }
+
+    private record FixedTaxes(List<Tax> taxes) implements TaxDao {
+        @Override
+        public List<Tax> getAllTaxes() {
+            return taxes;
+        }
+
+        @Override
+        public Tax getTaxByState(String state) {
+            return taxes.stream().filter(t -> t.getStateAbbr().equalsIgnoreCase(state)).findFirst().orElse(null);
+        }
+    }
+}
@@ -2,13 +2,19 @@ package com.flooring.flooringmastery.service;
 
 import com.flooring.flooringmastery.dao.*;
 import com.flooring.flooringmastery.model.*;
+import com.flooring.flooringmastery.exceptions.NoSuchOrderException;
 import com.flooring.flooringmastery.exceptions.PersistenceException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.flooring.flooringmastery.view.UserIOConsoleImpl;
 
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -20,6 +26,10 @@ class ServiceLayerImplTest {
     private InMemoryTaxDao taxDao;
     private InMemoryAuditDao auditDao;
     private InMemoryExportDao exportDao;
+    private SalesDaoFileImpl salesDao;
+
+    @TempDir
+    Path folder;
 
     @BeforeEach
     void setUp() {
@@ -29,7 +39,9 @@ class ServiceLayerImplTest {
         auditDao = new InMemoryAuditDao();
         exportDao = new InMemoryExportDao();
 
-    service = new ServiceLayerImpl(orderDao, productDao, taxDao, auditDao, exportDao);
+        salesDao = new SalesDaoFileImpl(new UserIOConsoleImpl(), orderDao, folder.resolve("SalesTotals.txt").toString());
+
+    service = new ServiceLayerImpl(orderDao, productDao, taxDao, auditDao, exportDao, null, salesDao);
     }
 
     @Test
@@ -56,10 +68,202 @@ class ServiceLayerImplTest {
         assertEquals(1, orderDao.getOrdersForDate(date).size());
     }
 
+    @Test
+    void testUpdateOrderReplacesInPlace() throws Exception {
+        LocalDate date = LocalDate.now().plusDays(1);
+        Order order = service.createOrder(date, "Test User", "TX", "Tile", new BigDecimal("150"));
+        service.addOrder(date, order);
+
+        Order edited = new Order(order);
+        edited.setArea(new BigDecimal("300"));
+        service.updateOrder(date, edited);
+
+        assertEquals(1, orderDao.getOrdersForDate(date).size());
+        assertEquals(0, new BigDecimal("300").compareTo(orderDao.getOrder(date, order.getOrderNumber()).getArea()));
+        assertTrue(orderDao.getOrder(date, order.getOrderNumber()).getTotal().compareTo(order.getTotal()) > 0);
+    }
+
+    @Test
+    void testUpdateMissingOrderThrows() throws PersistenceException {
+        LocalDate date = LocalDate.now().plusDays(1);
+        Order order = service.createOrder(date, "Test User", "TX", "Tile", new BigDecimal("150"));
+        assertThrows(NoSuchOrderException.class, () -> service.updateOrder(date, order));
+    }
+
+    @Test
+    void testExportRangeRejectsReversedDates() {
+        LocalDate today = LocalDate.now();
+        assertThrows(IllegalArgumentException.class, () -> service.exportData(today, today.minusDays(1)));
+        assertEquals("FileData/Backup/DataExport_" + today + "_" + today + ".txt", service.exportData(today, today));
+    }
+
+    @Test
+    void testAddOrdersReportsBadRowsAndWritesEachDateOnce() throws PersistenceException {
+        LocalDate first = LocalDate.now().plusDays(1);
+        LocalDate second = LocalDate.now().plusDays(2);
+        List<Order> batch = List.of(
+                newOrder(first, "Ann", "TX", new BigDecimal("150")),
+                newOrder(first, "Bob", "ZZ", new BigDecimal("150")),
+                newOrder(second, "Cy", "TX", new BigDecimal("200")),
+                newOrder(second, "Di", "TX", new BigDecimal("99")),
+                newOrder(first, "Ed", "TX", new BigDecimal("300")));
+
+        ImportReport report = service.addOrders(batch);
+
+        assertEquals(3, report.getAdded().size());
+        assertEquals(Set.of(2, 4), report.getErrors().keySet());
+        assertEquals(2, orderDao.getOrdersForDate(first).size());
+        assertEquals(1, orderDao.getOrdersForDate(second).size());
+        assertEquals(List.of(first, second), orderDao.batchWrites);
+        // numbers are handed out in input order from one block
+        assertEquals(batch.get(0).getOrderNumber() + 1, batch.get(2).getOrderNumber());
+        assertEquals(batch.get(0).getOrderNumber() + 2, batch.get(4).getOrderNumber());
+        assertNotNull(batch.get(4).getTotal());
+    }
+
+    @Test
+    void testAddOrdersFillsRatesFromSnapshotNotDaos() throws PersistenceException {
+        LocalDate date = LocalDate.now().plusDays(1);
+        assertTrue(service.isValidProduct("Tile"));
+        // gone from the DAOs without a reload, only the snapshot still knows the rates
+        productDao.products.clear();
+        taxDao.taxes.clear();
+
+        ImportReport report = service.addOrders(List.of(newOrder(date, "Ann", "TX", new BigDecimal("150"))));
+
+        assertTrue(report.getErrors().isEmpty());
+        Order added = orderDao.getOrdersForDate(date).get(0);
+        assertEquals(new BigDecimal("3.50"), added.getCostPerSquareFoot());
+        assertEquals(new BigDecimal("4.45"), added.getTaxRate());
+        assertNotNull(added.getTotal());
+    }
+
+    private Order newOrder(LocalDate date, String name, String state, BigDecimal area) {
+        Order order = new Order();
+        order.setOrderDate(date);
+        order.setCustomerName(name);
+        order.setState(state);
+        order.setProductType("Tile");
+        order.setArea(area);
+        return order;
+    }
+
+    @Test
+    void testValidatorsFollowReloadedReferenceData() throws PersistenceException {
+        assertTrue(service.isValidProduct("TILE"));
+        assertFalse(service.isValidState("WA"));
+        assertTrue(service.isValidName("Smith, Jr. - Co"));
+        assertFalse(service.isValidName("Robert'); DROP"));
+
+        Tax wa = new Tax();
+        wa.setStateAbbr("WA");
+        wa.setTaxRate(new BigDecimal("9.25"));
+        taxDao.taxes.put("WA", wa);
+        // the snapshot stays until the dao reports new data
+        assertFalse(service.isValidState("WA"));
+        taxDao.version++;
+        assertTrue(service.isValidState("WA"));
+        assertEquals(List.of("TX", "WA"), service.getAllStateAbbrs());
+    }
+
+    @Test
+    void testRepriceMovesOnlyOpenOrdersOntoNewRates() throws PersistenceException {
+        LocalDate past = LocalDate.now().minusDays(3);
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        LocalDate later = LocalDate.now().plusDays(5);
+        Order old = service.createOrder(past, "Old", "TX", "Tile", new BigDecimal("100"));
+        orderDao.addOrder(past, old);
+        for (LocalDate date : List.of(tomorrow, tomorrow, later)) {
+            service.addOrder(date, service.createOrder(date, "Open", "TX", "Tile", new BigDecimal("100")));
+        }
+        BigDecimal oldTotal = orderDao.getOrdersForDate(later).get(0).getTotal();
+        orderDao.batchWrites.clear();
+
+        productDao.products.get("tile").setCostPerSquareFoot(new BigDecimal("4.50"));
+        productDao.version++;
+        RepriceReport report = service.repriceOpenOrders(null, "tile");
+
+        // one more dollar of material per square foot plus 4.45% tax on 100 sq ft, three orders
+        assertEquals(3, report.getOrdersRepriced());
+        assertEquals(2, report.getDatesWritten());
+        assertEquals(0, new BigDecimal("313.35").compareTo(report.getTotalChange()));
+        assertEquals(List.of(tomorrow, later), orderDao.batchWrites.stream().sorted().toList());
+        Order repriced = orderDao.getOrdersForDate(later).get(0);
+        assertEquals(new BigDecimal("4.50"), repriced.getCostPerSquareFoot());
+        assertEquals(0, oldTotal.add(new BigDecimal("104.45")).compareTo(repriced.getTotal()));
+        assertEquals(new BigDecimal("3.50"), orderDao.getOrder(past, old.getOrderNumber()).getCostPerSquareFoot());
+
+        // nothing left to move
+        assertEquals(0, service.repriceOpenOrders("TX", null).getOrdersRepriced());
+    }
+
+    @Test
+    void testSalesTotalsFollowAddEditAndRemove() throws Exception {
+        LocalDate date = LocalDate.now().plusDays(1);
+        Order first = service.createOrder(date, "Ann", "TX", "Tile", new BigDecimal("100"));
+        service.addOrder(date, first);
+        Order second = service.createOrder(date, "Bob", "TX", "Tile", new BigDecimal("200"));
+        service.addOrder(date, second);
+
+        SalesTotals tx = service.getSalesByState(date, date).get("TX");
+        assertEquals(2, tx.getCount());
+        assertEquals(0, first.getTotal().add(second.getTotal()).compareTo(tx.getTotal()));
+
+        Order edited = new Order(second);
+        edited.setArea(new BigDecimal("300"));
+        service.calculateOrder(edited);
+        service.updateOrder(date, edited);
+        service.removeOrder(date, first.getOrderNumber());
+
+        SalesTotals tile = service.getSalesByProduct(date, date).get("Tile");
+        assertEquals(1, tile.getCount());
+        assertEquals(0, new BigDecimal("300").compareTo(tile.getArea()));
+        assertEquals(0, edited.getTotal().compareTo(service.getSalesByDate(date, date).get(date).getTotal()));
+        assertTrue(service.getSalesByState(date.plusDays(1), date.plusDays(9)).isEmpty());
+
+        // a restart replays the journal instead of scanning orders
+        SalesDaoFileImpl reopened = new SalesDaoFileImpl(new UserIOConsoleImpl(), new InMemoryOrderDao(),
+                folder.resolve("SalesTotals.txt").toString());
+        assertEquals(0, edited.getTotal().compareTo(reopened.getTotalsByState(date, date).get("TX").getTotal()));
+    }
+
+    @Test
+    void testFindOrdersByCustomerFollowsAddEditAndRemove() throws Exception {
+        LocalDate date = LocalDate.now().plusDays(1);
+        Order stored = service.createOrder(date, "Anna Smithers", "TX", "Tile", new BigDecimal("100"));
+        orderDao.addOrder(date, stored); // already on disk when the index is first built
+        assertEquals(List.of(new OrderKey(date, stored.getOrderNumber())), service.findOrdersByCustomer("SMITH"));
+
+        Order added = service.createOrder(date.plusDays(1), "John Smith", "TX", "Tile", new BigDecimal("100"));
+        service.addOrder(date.plusDays(1), added);
+        assertEquals(List.of(new OrderKey(date, stored.getOrderNumber()), new OrderKey(date.plusDays(1), added.getOrderNumber())),
+                service.findOrdersByCustomer("smi"));
+        assertEquals(List.of(new OrderKey(date.plusDays(1), added.getOrderNumber())), service.findOrdersByCustomer("jo"));
+        assertTrue(service.findOrdersByCustomer("Smithy").isEmpty());
+        assertTrue(service.findOrdersByCustomer(" ").isEmpty());
+
+        Order renamed = new Order(added);
+        renamed.setCustomerName("Jon Baker");
+        service.updateOrder(date.plusDays(1), renamed);
+        assertEquals(List.of(new OrderKey(date, stored.getOrderNumber())), service.findOrdersByCustomer("smi"));
+        assertEquals(1, service.findOrdersByCustomer("Bak").size());
+
+        service.removeOrder(date, stored.getOrderNumber());
+        assertTrue(service.findOrdersByCustomer("smi").isEmpty());
+        assertTrue(service.findOrdersByCustomer("anna").isEmpty());
+    }
+
     // ----- In-memory fake DAO implementations -----
 
     static class InMemoryOrderDao implements OrderDao {
-        private final Map<LocalDate, Map<Integer, Order>> data = new HashMap<>();
+        private final Map<LocalDate, Map<Integer, Order>> data = new ConcurrentHashMap<>();
+        private final List<LocalDate> batchWrites = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void addOrders(LocalDate date, Collection<Order> orders) throws PersistenceException {
+            batchWrites.add(date);
+            for (Order order : orders) addOrder(date, order);
+        }
 
         @Override
         public Order addOrder(LocalDate date, Order order) throws PersistenceException {
@@ -73,6 +277,14 @@ class ServiceLayerImplTest {
             return data.getOrDefault(date, new HashMap<>()).get(orderNumber);
         }
 
+        @Override
+        public Order getOrder(int orderNumber) {
+            for (Map<Integer, Order> orders : data.values()) {
+                if (orders.containsKey(orderNumber)) return orders.get(orderNumber);
+            }
+            return null;
+        }
+
         @Override
         public List<Order> getOrdersForDate(LocalDate date) {
             return new ArrayList<>(data.getOrDefault(date, new HashMap<>()).values());
@@ -84,6 +296,13 @@ class ServiceLayerImplTest {
             return data.get(date).remove(orderNumber);
         }
 
+        @Override
+        public Order updateOrder(LocalDate date, Order order) {
+            Map<Integer, Order> orders = data.get(date);
+            if (orders == null || !orders.containsKey(order.getOrderNumber())) return null;
+            return orders.put(order.getOrderNumber(), order);
+        }
+
         @Override
         public void saveAllOrders() throws PersistenceException {
 
@@ -96,6 +315,13 @@ class ServiceLayerImplTest {
             return all;
         }
 
+        @Override
+        public List<LocalDate> getOrderDates() {
+            List<LocalDate> dates = new ArrayList<>(data.keySet());
+            Collections.sort(dates);
+            return dates;
+        }
+
         @Override
         public int getNextOrderNumber() throws PersistenceException {
             return data.values().stream()
@@ -107,6 +333,12 @@ class ServiceLayerImplTest {
 
     static class InMemoryProductDao implements ProductDao {
         private final Map<String, Product> products = new HashMap<>();
+        private long version;
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
 
         public InMemoryProductDao() {
             Product tile = new Product();
@@ -130,6 +362,12 @@ class ServiceLayerImplTest {
 
     static class InMemoryTaxDao implements TaxDao {
         private final Map<String, Tax> taxes = new HashMap<>();
+        private long version;
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
 
         public InMemoryTaxDao() {
             Tax tx = new Tax();
@@ -160,8 +398,18 @@ class ServiceLayerImplTest {
 
     static class InMemoryExportDao implements ExportDao {
         @Override
-        public void exportData(Map<LocalDate, Map<Integer, Order>> orders) throws PersistenceException {
-            // No-op for test
+        public List<String> exportData(Map<LocalDate, Map<Integer, Order>> orders) throws PersistenceException {
+            return List.of("FileData/Backup/DataExport.txt");
+        }
+
+        @Override
+        public List<String> exportData(OrderDao orderDao) throws PersistenceException {
+            return List.of("FileData/Backup/DataExport.txt");
+        }
+
+        @Override
+        public String exportData(OrderDao orderDao, LocalDate from, LocalDate to) throws PersistenceException {
+            return "FileData/Backup/DataExport_" + from + "_" + to + ".txt";
         }
     }
 }